@@ -0,0 +1,227 @@
+package com.wonderpush.sdk.cordova;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Locale;
+
+/**
+ * The arguments of an action call, with typed accessors.
+ *
+ * Once validated against the {@link Schema} of the action, accessors read values of the declared type directly.
+ * Otherwise they behave like their {@link JSONArray} counterparts, coercing values and throwing {@link JSONException}.
+ */
+class ActionArgs {
+
+    static final String INVALID_ARGUMENT = "invalidArgument";
+
+    enum Type {
+        /** Any value, including {@code null}. */
+        ANY("any value"),
+        STRING("a string"),
+        BOOLEAN("a boolean"),
+        NUMBER("a number"),
+        OBJECT("an object"),
+        ARRAY("an array"),
+        /** A string or an array, like tags. */
+        STRING_OR_ARRAY("a string or an array");
+
+        final String description;
+
+        Type(String description) {
+            this.description = description;
+        }
+
+        boolean accepts(Object value) {
+            switch (this) {
+                case STRING:
+                    return value instanceof String;
+                case BOOLEAN:
+                    return value instanceof Boolean;
+                case NUMBER:
+                    return value instanceof Number;
+                case OBJECT:
+                    return value instanceof JSONObject;
+                case ARRAY:
+                    return value instanceof JSONArray;
+                case STRING_OR_ARRAY:
+                    return value instanceof String || value instanceof JSONArray;
+                case ANY:
+                default:
+                    return true;
+            }
+        }
+    }
+
+    static final class Param {
+        final Type type;
+        /** Whether the argument can be missing or {@code null}. */
+        final boolean optional;
+
+        private Param(Type type, boolean optional) {
+            this.type = type;
+            this.optional = optional;
+        }
+    }
+
+    static Param required(Type type) {
+        return new Param(type, false);
+    }
+
+    static Param optional(Type type) {
+        return new Param(type, true);
+    }
+
+    /**
+     * The expected arguments of an action, by position. Extra arguments are not checked.
+     */
+    static final class Schema {
+        static final Schema NONE = new Schema();
+
+        private final Param[] params;
+
+        private Schema(Param... params) {
+            this.params = params;
+        }
+
+        static Schema of(Param... params) {
+            return params.length == 0 ? NONE : new Schema(params);
+        }
+
+        static Schema of(Type... types) {
+            Param[] params = new Param[types.length];
+            for (int i = 0; i < types.length; ++i) {
+                params[i] = required(types[i]);
+            }
+            return of(params);
+        }
+
+        /**
+         * @return {@code null} if the given arguments are valid,
+         *         the error to give to {@link org.apache.cordova.CallbackContext#error(JSONObject)} otherwise.
+         */
+        JSONObject validate(String action, ActionArgs args) throws JSONException {
+            for (int i = 0; i < params.length; ++i) {
+                Param param = params[i];
+                Object value = args.opt(i);
+                boolean valid;
+                if (value == null) {
+                    valid = param.optional;
+                } else if (value == JSONObject.NULL) {
+                    valid = param.optional || param.type == Type.ANY;
+                } else {
+                    valid = param.type.accepts(value);
+                }
+                if (!valid) {
+                    JSONObject error = new JSONObject();
+                    error.put("code", INVALID_ARGUMENT);
+                    error.put("action", action);
+                    error.put("index", i);
+                    error.put("expected", param.type.name().toLowerCase(Locale.ROOT));
+                    error.put("message", "Argument " + i + " of " + action + " must be " + param.type.description
+                            + (param.optional ? " or null" : ""));
+                    return error;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final JSONArray array;
+
+    ActionArgs(JSONArray array) {
+        this.array = array != null ? array : new JSONArray();
+    }
+
+    JSONArray toJSONArray() {
+        return array;
+    }
+
+    int length() {
+        return array.length();
+    }
+
+    boolean isNull(int index) {
+        return array.isNull(index);
+    }
+
+    Object opt(int index) {
+        return array.opt(index);
+    }
+
+    Object get(int index) throws JSONException {
+        return array.get(index);
+    }
+
+    String getString(int index) throws JSONException {
+        Object value = array.opt(index);
+        if (value instanceof String) return (String) value;
+        return array.getString(index);
+    }
+
+    /**
+     * @return {@code null} if the argument is missing or {@code null}.
+     */
+    String optString(int index) throws JSONException {
+        return array.isNull(index) ? null : getString(index);
+    }
+
+    boolean getBoolean(int index) throws JSONException {
+        Object value = array.opt(index);
+        if (value instanceof Boolean) return (Boolean) value;
+        return array.getBoolean(index);
+    }
+
+    boolean optBoolean(int index, boolean fallback) {
+        Object value = array.opt(index);
+        if (value instanceof Boolean) return (Boolean) value;
+        return array.optBoolean(index, fallback);
+    }
+
+    double getDouble(int index) throws JSONException {
+        Object value = array.opt(index);
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        return array.getDouble(index);
+    }
+
+    /**
+     * @return {@code fallback} if the argument is missing or {@code null}.
+     */
+    double optDouble(int index, double fallback) throws JSONException {
+        return array.isNull(index) ? fallback : getDouble(index);
+    }
+
+    long getLong(int index) throws JSONException {
+        Object value = array.opt(index);
+        if (value instanceof Number) return ((Number) value).longValue();
+        return array.getLong(index);
+    }
+
+    /**
+     * @return {@code fallback} if the argument is missing or {@code null}.
+     */
+    long optLong(int index, long fallback) throws JSONException {
+        return array.isNull(index) ? fallback : getLong(index);
+    }
+
+    JSONObject getJSONObject(int index) throws JSONException {
+        Object value = array.opt(index);
+        if (value instanceof JSONObject) return (JSONObject) value;
+        return array.getJSONObject(index);
+    }
+
+    /**
+     * @return {@code null} if the argument is missing or {@code null}.
+     */
+    JSONObject optJSONObject(int index) throws JSONException {
+        return array.isNull(index) ? null : getJSONObject(index);
+    }
+
+    JSONArray getJSONArray(int index) throws JSONException {
+        Object value = array.opt(index);
+        if (value instanceof JSONArray) return (JSONArray) value;
+        return array.getJSONArray(index);
+    }
+
+}
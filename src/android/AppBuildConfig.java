@@ -0,0 +1,26 @@
+package com.wonderpush.sdk.cordova;
+
+/**
+ * Reads the fields that build-extras.gradle adds to the app BuildConfig from the plugin variables.
+ */
+final class AppBuildConfig {
+
+    private AppBuildConfig() {
+    }
+
+    /**
+     * Reads a field of the app BuildConfig, looked up in the given packages in order.
+     * @return {@code null} if there is no such field.
+     */
+    static Object readField(String name, Iterable<String> packageNames) {
+        for (String packageName : packageNames) {
+            if (packageName == null) continue;
+            try {
+                return Class.forName(packageName + ".BuildConfig").getField(name).get(null);
+            } catch (ClassNotFoundException | NoSuchFieldException | IllegalAccessException ignored) {
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,231 @@
+package com.wonderpush.sdk.cordova;
+
+import android.net.Uri;
+
+import com.wonderpush.sdk.WonderPushChannel;
+import com.wonderpush.sdk.WonderPushChannelGroup;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Codecs of the notification channels and channel groups exchanged with JavaScript.
+ */
+final class ChannelCodecs {
+
+    private ChannelCodecs() {
+    }
+
+    static final JSONCodec<WonderPushChannelGroup> CHANNEL_GROUP = new JSONCodec<>(
+            new JSONCodec.Factory<WonderPushChannelGroup>() {
+                @Override
+                public WonderPushChannelGroup create(JSONObject input) throws JSONException {
+                    return new WonderPushChannelGroup(input.getString("id"));
+                }
+            },
+            new JSONCodec.StringField<WonderPushChannelGroup>("id", true) {
+                @Override
+                String get(WonderPushChannelGroup source) {
+                    return source.getId();
+                }
+            },
+            new JSONCodec.StringField<WonderPushChannelGroup>("name") {
+                @Override
+                void set(WonderPushChannelGroup target, String value) {
+                    target.setName(value);
+                }
+
+                @Override
+                String get(WonderPushChannelGroup source) {
+                    return source.getName();
+                }
+            }
+    );
+
+    static final JSONCodec<WonderPushChannel> CHANNEL = new JSONCodec<>(
+            new JSONCodec.Factory<WonderPushChannel>() {
+                @Override
+                public WonderPushChannel create(JSONObject input) throws JSONException {
+                    return new WonderPushChannel(input.getString("id"), JSONUtil.optString(input, "groupId"));
+                }
+            },
+            new JSONCodec.BooleanField<WonderPushChannel>("bypassDnd") {
+                @Override
+                void set(WonderPushChannel target, Boolean value) {
+                    target.setBypassDnd(value);
+                }
+
+                @Override
+                Boolean get(WonderPushChannel source) {
+                    return source.getBypassDnd();
+                }
+            },
+            new JSONCodec.IntegerField<WonderPushChannel>("color") {
+                @Override
+                void set(WonderPushChannel target, Integer value) {
+                    target.setColor(value);
+                }
+
+                @Override
+                Integer get(WonderPushChannel source) {
+                    return source.getColor();
+                }
+            },
+            new JSONCodec.StringField<WonderPushChannel>("description") {
+                @Override
+                void set(WonderPushChannel target, String value) {
+                    target.setDescription(value);
+                }
+
+                @Override
+                String get(WonderPushChannel source) {
+                    return source.getDescription();
+                }
+            },
+            new JSONCodec.StringField<WonderPushChannel>("groupId", true) {
+                @Override
+                String get(WonderPushChannel source) {
+                    return source.getGroupId();
+                }
+            },
+            new JSONCodec.StringField<WonderPushChannel>("id", true) {
+                @Override
+                String get(WonderPushChannel source) {
+                    return source.getId();
+                }
+            },
+            new JSONCodec.IntegerField<WonderPushChannel>("importance") {
+                @Override
+                void set(WonderPushChannel target, Integer value) {
+                    target.setImportance(value);
+                }
+
+                @Override
+                Integer get(WonderPushChannel source) {
+                    return source.getImportance();
+                }
+            },
+            new JSONCodec.IntegerField<WonderPushChannel>("lightColor") {
+                @Override
+                void set(WonderPushChannel target, Integer value) {
+                    target.setLightColor(value);
+                }
+
+                @Override
+                Integer get(WonderPushChannel source) {
+                    return source.getLightColor();
+                }
+            },
+            new JSONCodec.BooleanField<WonderPushChannel>("lights") {
+                @Override
+                void set(WonderPushChannel target, Boolean value) {
+                    target.setLights(value);
+                }
+
+                @Override
+                Boolean get(WonderPushChannel source) {
+                    return source.getLights();
+                }
+            },
+            new JSONCodec.BooleanField<WonderPushChannel>("localOnly") {
+                @Override
+                void set(WonderPushChannel target, Boolean value) {
+                    target.setLocalOnly(value);
+                }
+
+                @Override
+                Boolean get(WonderPushChannel source) {
+                    return source.getLocalOnly();
+                }
+            },
+            new JSONCodec.IntegerField<WonderPushChannel>("lockscreenVisibility") {
+                @Override
+                void set(WonderPushChannel target, Integer value) {
+                    target.setLockscreenVisibility(value);
+                }
+
+                @Override
+                Integer get(WonderPushChannel source) {
+                    return source.getLockscreenVisibility();
+                }
+            },
+            new JSONCodec.StringField<WonderPushChannel>("name") {
+                @Override
+                void set(WonderPushChannel target, String value) {
+                    target.setName(value);
+                }
+
+                @Override
+                String get(WonderPushChannel source) {
+                    return source.getName();
+                }
+            },
+            new JSONCodec.BooleanField<WonderPushChannel>("showBadge") {
+                @Override
+                void set(WonderPushChannel target, Boolean value) {
+                    target.setShowBadge(value);
+                }
+
+                @Override
+                Boolean get(WonderPushChannel source) {
+                    return source.getShowBadge();
+                }
+            },
+            new JSONCodec.BooleanField<WonderPushChannel>("sound") {
+                @Override
+                void set(WonderPushChannel target, Boolean value) {
+                    target.setSound(value);
+                }
+
+                @Override
+                Boolean get(WonderPushChannel source) {
+                    return source.getSound();
+                }
+            },
+            new JSONCodec.UriField<WonderPushChannel>("soundUri") {
+                @Override
+                void set(WonderPushChannel target, Uri value) {
+                    target.setSoundUri(value);
+                }
+
+                @Override
+                Uri get(WonderPushChannel source) {
+                    return source.getSoundUri();
+                }
+            },
+            new JSONCodec.BooleanField<WonderPushChannel>("vibrate") {
+                @Override
+                void set(WonderPushChannel target, Boolean value) {
+                    target.setVibrate(value);
+                }
+
+                @Override
+                Boolean get(WonderPushChannel source) {
+                    return source.getVibrate();
+                }
+            },
+            new JSONCodec.BooleanField<WonderPushChannel>("vibrateInSilentMode") {
+                @Override
+                void set(WonderPushChannel target, Boolean value) {
+                    target.setVibrateInSilentMode(value);
+                }
+
+                @Override
+                Boolean get(WonderPushChannel source) {
+                    return source.getVibrateInSilentMode();
+                }
+            },
+            new JSONCodec.LongArrayField<WonderPushChannel>("vibrationPattern") {
+                @Override
+                void set(WonderPushChannel target, long[] value) {
+                    target.setVibrationPattern(value);
+                }
+
+                @Override
+                long[] get(WonderPushChannel source) {
+                    return source.getVibrationPattern();
+                }
+            }
+    );
+
+}
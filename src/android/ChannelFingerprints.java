@@ -0,0 +1,186 @@
+package com.wonderpush.sdk.cordova;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fingerprints of the notification channels and channel groups last applied, persisted across launches,
+ * so that applying the same configuration again only touches what changed.
+ *
+ * Until a full configuration has been applied once, or after {@link #clear()}, everything is applied.
+ *
+ * This class is not thread-safe, it must only be used from the plugin serial executor.
+ */
+class ChannelFingerprints {
+
+    private static final String TAG = "WonderPush";
+    private static final String PREFERENCES_NAME = "wonderpush-cordova-channels";
+
+    static final String CHANNELS = "channels";
+    static final String CHANNEL_GROUPS = "channelGroups";
+
+    /**
+     * Changes to apply for a full configuration of channels or channel groups.
+     */
+    static class Diff {
+        /** Whether nothing is known about what was applied before, and everything must be set. */
+        final boolean full;
+        /** Entries to put, all of them if {@link #full}. */
+        final List<JSONObject> put = new ArrayList<>();
+        /** Identifiers to remove. */
+        final List<String> removed = new ArrayList<>();
+        private final Map<String, String> fingerprints = new LinkedHashMap<>();
+        private final Map<String, String> previous;
+
+        Diff(Map<String, String> previous) {
+            this.full = previous == null;
+            this.previous = previous;
+        }
+
+        /**
+         * Gives up putting an entry that could not be applied, keeping the fingerprint recorded for it before, if any,
+         * so that it is put again by the next configuration.
+         */
+        void skip(JSONObject entry) {
+            put.remove(entry);
+            String id = JSONUtil.optString(entry, "id");
+            String previousFingerprint = previous == null ? null : previous.get(id);
+            if (previousFingerprint == null) {
+                fingerprints.remove(id);
+            } else {
+                fingerprints.put(id, previousFingerprint);
+            }
+        }
+
+        JSONObject toJSON() throws JSONException {
+            JSONObject rtn = new JSONObject();
+            JSONArray putIds = new JSONArray();
+            for (JSONObject entry : put) {
+                putIds.put(entry.opt("id"));
+            }
+            rtn.put("put", putIds);
+            rtn.put("removed", new JSONArray(removed));
+            return rtn;
+        }
+    }
+
+    private final SharedPreferences preferences;
+    // Lazily loaded, null when nothing has been applied
+    private final Map<String, Map<String, String>> loaded = new HashMap<>();
+
+    ChannelFingerprints(Context context) {
+        this.preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Computes the changes to apply the given entries, each with a string {@code id}, as the full configuration.
+     * Entries without one cannot be applied, and are skipped.
+     * Call {@link #commit(String, Diff)} once they are applied, after {@link Diff#skip(JSONObject)} for those that could not be.
+     */
+    Diff diff(String kind, JSONArray entries) {
+        Map<String, String> previous = get(kind);
+        Diff rtn = new Diff(previous);
+        for (int i = 0, e = entries.length(); i < e; ++i) {
+            JSONObject entry = entries.optJSONObject(i);
+            String id = entry == null ? null : JSONUtil.optString(entry, "id");
+            if (id == null) {
+                Log.w(TAG, "Skipping " + kind + " entry without an id at index " + i + ": " + entries.opt(i));
+                continue;
+            }
+            String fingerprint = fingerprint(entry);
+            rtn.fingerprints.put(id, fingerprint);
+            if (rtn.full || !fingerprint.equals(previous.get(id))) {
+                rtn.put.add(entry);
+            }
+        }
+        if (previous != null) {
+            for (String id : previous.keySet()) {
+                if (!rtn.fingerprints.containsKey(id)) {
+                    rtn.removed.add(id);
+                }
+            }
+        }
+        return rtn;
+    }
+
+    void commit(String kind, Diff diff) {
+        save(kind, new HashMap<>(diff.fingerprints));
+    }
+
+    /**
+     * Records that a single entry has been put, if a full configuration has been applied.
+     */
+    void put(String kind, JSONObject entry) {
+        Map<String, String> fingerprints = get(kind);
+        String id = entry == null ? null : JSONUtil.optString(entry, "id");
+        if (fingerprints == null || id == null) return;
+        fingerprints.put(id, fingerprint(entry));
+        save(kind, fingerprints);
+    }
+
+    /**
+     * Records that a single entry has been removed, if a full configuration has been applied.
+     */
+    void remove(String kind, String id) {
+        Map<String, String> fingerprints = get(kind);
+        if (fingerprints == null || fingerprints.remove(id) == null) return;
+        save(kind, fingerprints);
+    }
+
+    /**
+     * Forgets everything, so that the next full configuration is applied entirely.
+     */
+    void clear() {
+        loaded.clear();
+        preferences.edit().clear().apply();
+    }
+
+    private Map<String, String> get(String kind) {
+        if (loaded.containsKey(kind)) {
+            return loaded.get(kind);
+        }
+        Map<String, String> rtn = null;
+        String json = preferences.getString(kind, null);
+        if (json != null) {
+            try {
+                JSONObject object = new JSONObject(json);
+                rtn = new HashMap<>();
+                Iterator<String> it = object.keys();
+                while (it.hasNext()) {
+                    String id = it.next();
+                    rtn.put(id, object.getString(id));
+                }
+            } catch (JSONException ex) {
+                Log.w(TAG, "Could not read the fingerprints of the applied " + kind, ex);
+                rtn = null;
+            }
+        }
+        loaded.put(kind, rtn);
+        return rtn;
+    }
+
+    private void save(String kind, Map<String, String> fingerprints) {
+        loaded.put(kind, fingerprints);
+        preferences.edit().putString(kind, new JSONObject(fingerprints).toString()).apply();
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the JSON serialization of the given entry.
+     */
+    static String fingerprint(JSONObject entry) {
+        return Long.toHexString(Hashing.fnv1a64(entry.toString()));
+    }
+
+}
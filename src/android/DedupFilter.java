@@ -0,0 +1,54 @@
+package com.wonderpush.sdk.cordova;
+
+/**
+ * Recognizes the events already seen within a time window, like a notification opened twice
+ * because of a repeated tap or of an activity being recreated.
+ *
+ * Remembers the hash and time of up to {@link #CAPACITY} distinct keys in a ring. Once it is full, the slot of the key
+ * remembered first is reused, whether it was seen again since or not: this is a FIFO, not an LRU.
+ * Hash collisions are unlikely enough with 64-bit hashes over so few entries.
+ */
+class DedupFilter {
+
+    static final int CAPACITY = 64;
+    static final int DEFAULT_WINDOW_MS = 2000;
+
+    private final long windowMs;
+    private final long[] hashes = new long[CAPACITY];
+    private final long[] seenAt = new long[CAPACITY];
+    private int size;
+    private int next;
+
+    /**
+     * @param windowMs How long a key is remembered, {@code 0} to disable filtering.
+     */
+    DedupFilter(long windowMs) {
+        this.windowMs = Math.max(0, windowMs);
+    }
+
+    /**
+     * Tells whether the given key has been seen within the window, remembering it otherwise.
+     * @param key Identifies the event, or {@code null} to never filter it.
+     * @param nowMs A monotonic clock, in milliseconds.
+     */
+    synchronized boolean isDuplicate(String key, long nowMs) {
+        if (key == null || windowMs == 0) return false;
+        long hash = Hashing.fnv1a64(key);
+        for (int i = 0; i < size; ++i) {
+            if (hashes[i] == hash) {
+                if (nowMs - seenAt[i] < windowMs) {
+                    Metrics.recordDuplicateSuppressed();
+                    return true;
+                }
+                seenAt[i] = nowMs;
+                return false;
+            }
+        }
+        hashes[next] = hash;
+        seenAt[next] = nowMs;
+        next = (next + 1) % CAPACITY;
+        if (size < CAPACITY) ++size;
+        return false;
+    }
+
+}
@@ -5,107 +5,270 @@ import android.content.Context;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.util.Log;
-import android.util.Pair;
 
 import androidx.annotation.Nullable;
 
 import com.wonderpush.sdk.DeepLinkEvent;
 import com.wonderpush.sdk.WonderPushDelegate;
 
+import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.File;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Delegate implements WonderPushDelegate {
     public interface SubDelegate extends WonderPushDelegate {
         boolean subDelegateIsReady();
+
+        /**
+         * Whether {@link #urlForDeepLink(DeepLinkEvent)} is answered by JavaScript, rather than returning the given URL.
+         */
+        boolean subDelegateHasUrlForDeepLink();
+
+        /**
+         * Forwards a notification opening, along with the payload built for JavaScript by
+         * {@link Delegate#notificationOpenedPayload(JSONObject, int)}, which is shared by all sub delegates and must not be modified.
+         */
+        void forwardNotificationOpened(JSONObject payload, JSONObject notif, int buttonIndex);
+
+        /**
+         * Forwards a notification receipt, along with the payload built for JavaScript by
+         * {@link Delegate#notificationReceivedPayload(JSONObject)}, which is shared by all sub delegates and must not be modified.
+         */
+        void forwardNotificationReceived(JSONObject payload, JSONObject notif);
     }
 
-    private Context context;
+    /**
+     * A payload shared by many recipients, serialized only once, even within the batches of {@link EventChannel}.
+     * Must not be modified once shared.
+     */
+    private static class SharedPayload extends JSONObject {
+        private volatile String json;
+
+        @Override
+        public String toString() {
+            String rtn = json;
+            if (rtn == null) {
+                rtn = super.toString();
+                json = rtn;
+            }
+            return rtn;
+        }
+    }
 
-    private static WeakReference<SubDelegate> subDelegate;
-    private static final List<Pair<JSONObject, Integer>> savedOpenedNotifications = new ArrayList<>();
-    private static final List<JSONObject> savedReceivedNotifications = new ArrayList<>();
+    private Context context;
 
     private static final String TAG = "WonderPush";
 
-    protected static List<Pair<JSONObject, Integer>> consumeSavedOpenedNotifications() {
-        synchronized (Delegate.class) {
-            List<Pair<JSONObject, Integer>> result = new ArrayList(savedOpenedNotifications);
-            savedOpenedNotifications.clear();
-            return result;
+    static final String BUILD_CONFIG_SAVED_NOTIFICATIONS_CAPACITY = "WONDERPUSH_SAVED_NOTIFICATIONS_CAPACITY";
+    static final String BUILD_CONFIG_SAVED_NOTIFICATIONS_OVERFLOW = "WONDERPUSH_SAVED_NOTIFICATIONS_OVERFLOW";
+    static final String BUILD_CONFIG_SAVED_NOTIFICATIONS_JOURNAL = "WONDERPUSH_SAVED_NOTIFICATIONS_JOURNAL";
+    static final String METADATA_SAVED_NOTIFICATIONS_CAPACITY = "com.wonderpush.sdk.cordova.savedNotificationsCapacity";
+    static final String METADATA_SAVED_NOTIFICATIONS_OVERFLOW = "com.wonderpush.sdk.cordova.savedNotificationsOverflow";
+    static final String METADATA_SAVED_NOTIFICATIONS_JOURNAL = "com.wonderpush.sdk.cordova.savedNotificationsJournal";
+    private static final int DEFAULT_SAVED_NOTIFICATIONS_CAPACITY = 100;
+    private static final String SAVED_NOTIFICATIONS_JOURNAL_FILENAME = "wonderpush-cordova-saved-notifications";
+
+    // One per live plugin instance, most recent last. Iterated without locking, dead references are removed when met.
+    private static final CopyOnWriteArrayList<WeakReference<SubDelegate>> subDelegates = new CopyOnWriteArrayList<>();
+    private static final SavedNotificationsBuffer savedNotifications = new SavedNotificationsBuffer(DEFAULT_SAVED_NOTIFICATIONS_CAPACITY, SavedNotificationsBuffer.OverflowPolicy.DROP_OLDEST);
+
+    /**
+     * Delivers the notifications received or opened while no sub delegate was ready, in the order they happened,
+     * to all the sub delegates ready now, like the notifications that come afterwards.
+     * Call it once a sub delegate becomes ready.
+     */
+    protected static void replaySavedNotifications() {
+        List<SubDelegate> readySubDelegates = getReadySubDelegates();
+        if (readySubDelegates.isEmpty()) return;
+        SavedNotificationsBuffer.SavedNotification saved;
+        while ((saved = savedNotifications.poll()) != null) {
+            if (saved.opened) {
+                forwardNotificationOpened(readySubDelegates, saved.notification, saved.buttonIndex);
+            } else {
+                forwardNotificationReceived(readySubDelegates, saved.notification);
+            }
         }
     }
 
-    protected static List<JSONObject> consumeSavedReceivedNotifications() {
-        synchronized (Delegate.class) {
-            List<JSONObject> result = new ArrayList(savedReceivedNotifications);
-            savedReceivedNotifications.clear();
-            return result;
+    /**
+     * Adds a sub delegate to forward notifications to, along with the other ones. Adding it again has no effect.
+     */
+    protected static synchronized void addSubDelegate(SubDelegate subDelegate) {
+        if (subDelegate == null) return;
+        for (WeakReference<SubDelegate> ref : subDelegates) {
+            if (ref.get() == subDelegate) return;
         }
+        subDelegates.add(new WeakReference<>(subDelegate));
     }
 
-    protected static void setSubDelegate(SubDelegate subDelegate) {
-        synchronized (Delegate.class) {
-            Delegate.subDelegate = subDelegate != null ? new WeakReference<>(subDelegate) : null;
+    protected static synchronized void removeSubDelegate(SubDelegate subDelegate) {
+        for (WeakReference<SubDelegate> ref : subDelegates) {
+            SubDelegate item = ref.get();
+            if (item == null || item == subDelegate) {
+                subDelegates.remove(ref);
+            }
         }
     }
 
+    static JSONObject notificationOpenedPayload(JSONObject notif, int buttonIndex) throws JSONException {
+        JSONObject rtn = new SharedPayload();
+        rtn.put("method", "onNotificationOpened"); // that's the Android name of this method
+        rtn.put("notification", notif);
+        rtn.put("buttonIndex", buttonIndex);
+        return rtn;
+    }
+
+    static JSONObject notificationReceivedPayload(JSONObject notif) throws JSONException {
+        JSONObject rtn = new SharedPayload();
+        rtn.put("method", "onNotificationReceived"); // that's the Android name of this method
+        rtn.put("notification", notif);
+        return rtn;
+    }
+
+    /**
+     * Configures the saved notifications from the {@code SAVED_NOTIFICATIONS_*} plugin variables,
+     * which build-extras.gradle keeps in the app BuildConfig,
+     * falling back to the application meta-data, which Capacitor apps can set in their manifest.
+     */
     @Override
     public void setContext(Context context) {
         this.context = context;
+        Bundle metaData = null;
+        try {
+            metaData = context.getPackageManager().getApplicationInfo(context.getPackageName(), PackageManager.GET_META_DATA).metaData;
+        } catch (PackageManager.NameNotFoundException ex) {
+            Log.e(TAG, "Could not read application meta-data", ex);
+        }
+        List<String> packageNames = Collections.singletonList(context.getPackageName());
+        Object capacity = readConfig(packageNames, metaData, BUILD_CONFIG_SAVED_NOTIFICATIONS_CAPACITY, METADATA_SAVED_NOTIFICATIONS_CAPACITY);
+        Object overflow = readConfig(packageNames, metaData, BUILD_CONFIG_SAVED_NOTIFICATIONS_OVERFLOW, METADATA_SAVED_NOTIFICATIONS_OVERFLOW);
+        Object journal = readConfig(packageNames, metaData, BUILD_CONFIG_SAVED_NOTIFICATIONS_JOURNAL, METADATA_SAVED_NOTIFICATIONS_JOURNAL);
+        savedNotifications.configure(
+                parseInt(capacity, DEFAULT_SAVED_NOTIFICATIONS_CAPACITY),
+                SavedNotificationsBuffer.OverflowPolicy.parse(overflow == null ? null : String.valueOf(overflow)));
+        if (journal != null && "true".equals(String.valueOf(journal))) {
+            savedNotifications.setJournal(new File(context.getFilesDir(), SAVED_NOTIFICATIONS_JOURNAL_FILENAME));
+        }
+    }
+
+    private static Object readConfig(List<String> packageNames, Bundle metaData, String buildConfigField, String metaDataName) {
+        Object rtn = AppBuildConfig.readField(buildConfigField, packageNames);
+        if (rtn == null && metaData != null) {
+            rtn = metaData.get(metaDataName);
+        }
+        return rtn;
+    }
+
+    private static int parseInt(Object value, int defaultValue) {
+        if (value == null) return defaultValue;
+        if (value instanceof Number) return ((Number) value).intValue();
+        if (value instanceof String) {
+            try {
+                return Integer.parseInt((String) value);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        Log.w(TAG, "Ignoring invalid saved notifications capacity " + value);
+        return defaultValue;
     }
 
 
     @Override
     public String urlForDeepLink(DeepLinkEvent event) {
-        String defaultUrl = event.getUrl();
-        synchronized (Delegate.class) {
-            SubDelegate subDelegate = Delegate.subDelegate != null ? Delegate.subDelegate.get() : null;
-            if (subDelegate != null) {
+        // Only one can answer, ask the most recent one that implements it
+        List<SubDelegate> readySubDelegates = getReadySubDelegates();
+        for (int i = readySubDelegates.size() - 1; i >= 0; --i) {
+            SubDelegate subDelegate = readySubDelegates.get(i);
+            if (subDelegate.subDelegateHasUrlForDeepLink()) {
                 return subDelegate.urlForDeepLink(event);
             }
         }
-        return defaultUrl;
+        return event.getUrl();
     }
 
     @Override
     public void onNotificationOpened(JSONObject notif, int buttonIndex) {
-        synchronized (Delegate.class) {
-            if (!subDelegateIsReady()) {
-                // Save for later
-                savedOpenedNotifications.add(new Pair<>(notif, buttonIndex));
-                return;
-            }
-            SubDelegate subDelegate = Delegate.subDelegate != null ? Delegate.subDelegate.get() : null;
-            if (subDelegate != null) {
-                subDelegate.onNotificationOpened(notif, buttonIndex);
-            }
+        List<SubDelegate> readySubDelegates = getReadySubDelegates();
+        if (readySubDelegates.isEmpty()) {
+            // Save for later
+            save(new SavedNotificationsBuffer.SavedNotification(true, notif, buttonIndex));
+            return;
         }
+        forwardNotificationOpened(readySubDelegates, notif, buttonIndex);
     }
 
     @Override
     public void onNotificationReceived(JSONObject notif) {
-        synchronized (Delegate.class) {
-            if (!subDelegateIsReady()) {
-                // Save for later
-                savedReceivedNotifications.add(notif);
-                return;
-            }
-            SubDelegate subDelegate = Delegate.subDelegate != null ? Delegate.subDelegate.get() : null;
-            if (subDelegate != null) {
-                subDelegate.onNotificationReceived(notif);
-            }
+        List<SubDelegate> readySubDelegates = getReadySubDelegates();
+        if (readySubDelegates.isEmpty()) {
+            // Save for later
+            save(new SavedNotificationsBuffer.SavedNotification(false, notif, -1));
+            return;
         }
+        forwardNotificationReceived(readySubDelegates, notif);
     }
 
-    private static boolean subDelegateIsReady() {
-        SubDelegate subDelegate = Delegate.subDelegate != null ? Delegate.subDelegate.get() : null;
-        if (subDelegate != null) return subDelegate.subDelegateIsReady();
-        return false;
+    private static void forwardNotificationOpened(List<SubDelegate> readySubDelegates, JSONObject notif, int buttonIndex) {
+        JSONObject payload;
+        try {
+            payload = notificationOpenedPayload(notif, buttonIndex);
+        } catch (JSONException ex) {
+            Log.e(TAG, "Unexpected JSONException while forwarding onNotificationOpened", ex);
+            return;
+        }
+        for (SubDelegate subDelegate : readySubDelegates) {
+            subDelegate.forwardNotificationOpened(payload, notif, buttonIndex);
+        }
     }
 
-}
+    private static void forwardNotificationReceived(List<SubDelegate> readySubDelegates, JSONObject notif) {
+        JSONObject payload;
+        try {
+            payload = notificationReceivedPayload(notif);
+        } catch (JSONException ex) {
+            Log.e(TAG, "Unexpected JSONException while forwarding onNotificationReceived", ex);
+            return;
+        }
+        for (SubDelegate subDelegate : readySubDelegates) {
+            subDelegate.forwardNotificationReceived(payload, notif);
+        }
+    }
 
+    static int getSavedNotificationsCount() {
+        return savedNotifications.size();
+    }
+
+    static int getDroppedSavedNotificationsCount() {
+        return savedNotifications.getDropped();
+    }
+
+    private static void save(SavedNotificationsBuffer.SavedNotification item) {
+        savedNotifications.add(item);
+        Metrics.recordSavedNotifications(savedNotifications.size());
+        // A sub delegate may have become ready and replayed saved notifications meanwhile
+        replaySavedNotifications();
+    }
+
+    /**
+     * Returns the live sub delegates that are ready, most recent last, forgetting about the dead ones.
+     */
+    private static List<SubDelegate> getReadySubDelegates() {
+        List<SubDelegate> rtn = new ArrayList<>(subDelegates.size());
+        for (WeakReference<SubDelegate> ref : subDelegates) {
+            SubDelegate subDelegate = ref.get();
+            if (subDelegate == null) {
+                subDelegates.remove(ref);
+            } else if (subDelegate.subDelegateIsReady()) {
+                rtn.add(subDelegate);
+            }
+        }
+        return rtn;
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.wonderpush.sdk.cordova;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.wonderpush.sdk.WonderPush;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optional local aggregation of high-frequency events, configured per event type.
+ *
+ * Events of an aggregated type tracked within a time window are summarized into a single event.
+ * It holds the number of aggregated events in {@code int_aggregatedCount}, and for every numeric custom field
+ * its sum, minimum and maximum, suffixed by {@code Sum}, {@code Min} and {@code Max}.
+ * Other custom fields keep their last value.
+ * A window holding a single event tracks it unchanged.
+ *
+ * At most {@link #MAX_PENDING_TYPES} types are aggregated at once, the least recently used one being tracked early.
+ *
+ * This class is not thread-safe, it must only be used from the plugin serial executor.
+ */
+class EventAggregator {
+
+    private static final String TAG = "WonderPush";
+    static final int MAX_PENDING_TYPES = 64;
+    static final String KEY_AGGREGATED_COUNT = "int_aggregatedCount";
+
+    private static class NumericStats {
+        boolean integral = true;
+        long longSum;
+        double doubleSum;
+        Number min;
+        Number max;
+
+        void add(Number value) {
+            boolean valueIntegral = value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+            integral = integral && valueIntegral;
+            longSum += value.longValue();
+            doubleSum += value.doubleValue();
+            if (min == null || value.doubleValue() < min.doubleValue()) min = value;
+            if (max == null || value.doubleValue() > max.doubleValue()) max = value;
+        }
+    }
+
+    private static class Aggregate {
+        final long startedAt = SystemClock.elapsedRealtime();
+        int count;
+        JSONObject firstData;
+        final Map<String, NumericStats> numericFields = new LinkedHashMap<>();
+        final Map<String, Object> otherFields = new LinkedHashMap<>();
+    }
+
+    private final Map<String, Long> windows = new HashMap<>();
+    private final LinkedHashMap<String, Aggregate> aggregates = new LinkedHashMap<String, Aggregate>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Aggregate> eldest) {
+            if (size() > MAX_PENDING_TYPES) {
+                track(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Sets the aggregation window of an event type, {@code 0} to stop aggregating it.
+     */
+    void setWindowMs(String type, long windowMs) {
+        if (windowMs > 0) {
+            windows.put(type, windowMs);
+        } else {
+            windows.remove(type);
+            flush(type);
+        }
+    }
+
+    /**
+     * Returns the aggregation window of an event type, {@code 0} if it is not aggregated.
+     */
+    long getWindowMs(String type) {
+        Long rtn = windows.get(type);
+        return rtn == null ? 0 : rtn;
+    }
+
+    boolean isAggregated(String type) {
+        return windows.containsKey(type);
+    }
+
+    /**
+     * Aggregates an event.
+     * @return {@code true} if this event starts a new window, which must be flushed using {@link #flushIfDue(String)}.
+     */
+    boolean add(String type, JSONObject data) {
+        Aggregate aggregate = aggregates.get(type);
+        boolean started = aggregate == null;
+        if (started) {
+            aggregate = new Aggregate();
+            aggregates.put(type, aggregate);
+        }
+        ++aggregate.count;
+        if (aggregate.count == 1) {
+            aggregate.firstData = data;
+        }
+        if (data != null) {
+            Iterator<String> it = data.keys();
+            while (it.hasNext()) {
+                String key = it.next();
+                Object value = data.opt(key);
+                if (value instanceof Number) {
+                    NumericStats stats = aggregate.numericFields.get(key);
+                    if (stats == null) {
+                        stats = new NumericStats();
+                        aggregate.numericFields.put(key, stats);
+                    }
+                    stats.add((Number) value);
+                } else {
+                    aggregate.otherFields.put(key, value);
+                }
+            }
+        }
+        return started;
+    }
+
+    /**
+     * Tracks the aggregated event of the given type if its window is over.
+     */
+    void flushIfDue(String type) {
+        Aggregate aggregate = aggregates.get(type);
+        if (aggregate != null && SystemClock.elapsedRealtime() - aggregate.startedAt >= getWindowMs(type)) {
+            flush(type);
+        }
+    }
+
+    /**
+     * Tracks the aggregated event of the given type now.
+     */
+    void flush(String type) {
+        Aggregate aggregate = aggregates.remove(type);
+        if (aggregate != null) {
+            track(type, aggregate);
+        }
+    }
+
+    /**
+     * Tracks all aggregated events now.
+     */
+    void flushAll() {
+        if (aggregates.isEmpty()) return;
+        List<Map.Entry<String, Aggregate>> entries = new ArrayList<>(aggregates.entrySet());
+        aggregates.clear();
+        for (Map.Entry<String, Aggregate> entry : entries) {
+            track(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Forgets all aggregated events without tracking them.
+     */
+    void clear() {
+        aggregates.clear();
+    }
+
+    private static void track(String type, Aggregate aggregate) {
+        if (aggregate.count == 1) {
+            if (aggregate.firstData != null) {
+                WonderPush.trackEvent(type, aggregate.firstData);
+            } else {
+                WonderPush.trackEvent(type);
+            }
+            return;
+        }
+        JSONObject data = new JSONObject();
+        try {
+            for (Map.Entry<String, Object> entry : aggregate.otherFields.entrySet()) {
+                data.put(entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<String, NumericStats> entry : aggregate.numericFields.entrySet()) {
+                NumericStats stats = entry.getValue();
+                if (stats.integral) {
+                    data.put(entry.getKey() + "Sum", stats.longSum);
+                } else {
+                    data.put(entry.getKey() + "Sum", stats.doubleSum);
+                }
+                data.put(entry.getKey() + "Min", stats.min);
+                data.put(entry.getKey() + "Max", stats.max);
+            }
+            data.put(KEY_AGGREGATED_COUNT, aggregate.count);
+        } catch (JSONException ex) {
+            Log.e(TAG, "Unexpected error while summarizing aggregated event " + type, ex);
+        }
+        WonderPush.trackEvent(type, data);
+    }
+
+}
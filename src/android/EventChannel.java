@@ -0,0 +1,303 @@
+package com.wonderpush.sdk.cordova;
+
+import android.os.Looper;
+import android.util.Log;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batches the events sent to JavaScript through kept callbacks, like the event forwarder and the delegate.
+ *
+ * Events are queued and delivered together, after a short delay or once enough events are queued,
+ * as a single array message per run of consecutive events sharing the same callback.
+ * A lone event is sent as is.
+ *
+ * Events go through one of two lanes, by {@link Priority}. {@link Priority#HIGH} events are delivered first,
+ * {@link Priority#LOW} events are delivered afterwards at a limited rate, so that a flood of them cannot delay the others.
+ * Events are delivered in the order they were sent within each lane, across all callbacks.
+ *
+ * Each lane is bounded, the {@link OverflowPolicy} telling what to do when it is full.
+ * Only {@link Priority#HIGH} events sent off the main thread can wait for room,
+ * so that a flood of received notifications never parks the thread delivering them, nor the main thread.
+ */
+class EventChannel {
+
+    private static final String TAG = "WonderPush";
+
+    static final int DEFAULT_CAPACITY = 256;
+    static final int DEFAULT_BATCH_SIZE = 32;
+    static final int DEFAULT_FLUSH_DELAY_MS = 16;
+    static final int DEFAULT_LOW_PRIORITY_RATE = 64;
+
+    enum Priority {
+        /** User-facing events, like notification opens and button callbacks. */
+        HIGH,
+        /** Background events, like received notifications. */
+        LOW,
+    }
+
+    enum OverflowPolicy {
+        /**
+         * Wait for the lane to be delivered, for {@link Priority#HIGH} events sent off the main thread.
+         * Other events are handled as with {@link #COALESCE}.
+         */
+        BLOCK,
+        /** Drop the oldest queued event of the lane. */
+        DROP,
+        /** Replace a queued duplicate of the event, or drop the oldest queued event of the lane if there is none. */
+        COALESCE;
+
+        static OverflowPolicy parse(String value) {
+            if ("block".equals(value)) return BLOCK;
+            if ("drop".equals(value)) return DROP;
+            return COALESCE;
+        }
+    }
+
+    private static class Event {
+        final CallbackContext target;
+        final String coalesceKey;
+        JSONObject payload;
+
+        Event(CallbackContext target, JSONObject payload, String coalesceKey) {
+            this.target = target;
+            this.payload = payload;
+            this.coalesceKey = coalesceKey;
+        }
+    }
+
+    /**
+     * A batch of events, serialized by joining the serializations of its events, instead of walking through them,
+     * so that payloads memoizing their serialization, like the ones shared by {@link Delegate}, are serialized only once.
+     */
+    private static class Batch extends JSONArray {
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0, e = length(); i < e; ++i) {
+                if (i > 0) sb.append(',');
+                sb.append(opt(i));
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    /**
+     * Delivers queued events, off the threads sending them so that {@link OverflowPolicy#BLOCK} can wait for it.
+     */
+    private static final ScheduledThreadPoolExecutor flusher = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "WonderPush-Cordova-Events");
+        }
+    });
+
+    private final int capacity;
+    private final int batchSize;
+    private final int flushDelayMs;
+    private final OverflowPolicy overflowPolicy;
+    private final int lowPriorityRate;
+    // Guards the lanes and the rate limit, held while waiting for room
+    private final Object lock = new Object();
+    private final ArrayDeque<Event> highPriorityLane = new ArrayDeque<>();
+    private final ArrayDeque<Event> lowPriorityLane = new ArrayDeque<>();
+    private boolean flushScheduled;
+    // Token bucket of LOW events, holding at most batchSize tokens
+    private double lowPriorityTokens;
+    private long lowPriorityTokensRefilledAt = System.nanoTime();
+    // Held while delivering, so that concurrent flushes deliver in order
+    private final Object deliveryLock = new Object();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * @param lowPriorityRate How many {@link Priority#LOW} events can be delivered per second, {@code 0} for no limit.
+     */
+    EventChannel(int capacity, int batchSize, int flushDelayMs, OverflowPolicy overflowPolicy, int lowPriorityRate) {
+        this.capacity = Math.max(1, capacity);
+        this.batchSize = Math.max(1, Math.min(batchSize, this.capacity));
+        this.flushDelayMs = Math.max(0, flushDelayMs);
+        this.overflowPolicy = overflowPolicy;
+        this.lowPriorityRate = Math.max(0, lowPriorityRate);
+        this.lowPriorityTokens = this.batchSize;
+    }
+
+    /**
+     * Identifies a notification event, to coalesce its duplicates.
+     * @return {@code null} if the notification has no identifier.
+     */
+    static String notificationKey(String kind, JSONObject notification) {
+        JSONObject wpData = JSONUtil.optWonderPushData(notification);
+        String notificationId = wpData == null ? null : JSONUtil.optString(wpData, "n");
+        if (notificationId == null) return null;
+        return kind + ":" + JSONUtil.optString(wpData, "c") + ":" + notificationId;
+    }
+
+    /**
+     * Queues an event for the given callback.
+     * @param coalesceKey Identifies duplicate events, for {@link OverflowPolicy#COALESCE}, or {@code null}.
+     */
+    void send(CallbackContext target, JSONObject payload, String coalesceKey, Priority priority) {
+        if (target == null) return;
+        Event event = new Event(target, payload, coalesceKey);
+        ArrayDeque<Event> lane = priority == Priority.LOW ? lowPriorityLane : highPriorityLane;
+        boolean flushNow;
+        synchronized (lock) {
+            if (!makeRoomFor(lane, event)) {
+                return;
+            }
+            lane.addLast(event);
+            Metrics.recordEventLaneDepth(priority, lane.size());
+            flushNow = lane == highPriorityLane && lane.size() >= batchSize;
+            if (!flushNow) {
+                scheduleFlush(flushDelayMs);
+            }
+        }
+        if (flushNow) {
+            flusher.execute(flushRunnable);
+        }
+    }
+
+    /**
+     * Delivers all queued {@link Priority#HIGH} events now, on the calling thread,
+     * followed by the {@link Priority#LOW} events the rate limit allows.
+     */
+    void flush() {
+        synchronized (deliveryLock) {
+            List<Event> highPriorityEvents;
+            List<Event> lowPriorityEvents;
+            synchronized (lock) {
+                flushScheduled = false;
+                highPriorityEvents = poll(highPriorityLane, highPriorityLane.size());
+                lowPriorityEvents = poll(lowPriorityLane, takeLowPriorityTokens(lowPriorityLane.size()));
+                if (highPriorityEvents.isEmpty() && lowPriorityEvents.isEmpty() && lowPriorityLane.isEmpty()) return;
+                Metrics.recordEventLaneDepth(Priority.HIGH, 0);
+                Metrics.recordEventLaneDepth(Priority.LOW, lowPriorityLane.size());
+                lock.notifyAll();
+                if (!lowPriorityLane.isEmpty()) {
+                    // Wait for the rate limit to allow at least one more
+                    scheduleFlush(Math.max(flushDelayMs, (int) Math.ceil((1 - lowPriorityTokens) * 1000 / lowPriorityRate)));
+                }
+            }
+            deliver(highPriorityEvents);
+            deliver(lowPriorityEvents);
+        }
+    }
+
+    /**
+     * Returns how many events were dropped because their lane was full.
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Schedules a flush, unless one is already scheduled. Must hold the lock.
+     */
+    private void scheduleFlush(int delayMs) {
+        if (flushScheduled) return;
+        flushScheduled = true;
+        flusher.schedule(flushRunnable, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns how many of the given number of {@link Priority#LOW} events can be delivered now. Must hold the lock.
+     */
+    private int takeLowPriorityTokens(int wanted) {
+        if (lowPriorityRate == 0 || wanted == 0) return wanted;
+        long now = System.nanoTime();
+        lowPriorityTokens = Math.min(batchSize,
+                lowPriorityTokens + (now - lowPriorityTokensRefilledAt) * lowPriorityRate / 1e9);
+        lowPriorityTokensRefilledAt = now;
+        int rtn = Math.min(wanted, (int) lowPriorityTokens);
+        lowPriorityTokens -= rtn;
+        return rtn;
+    }
+
+    /**
+     * Ensures the given lane can take the given event. Must hold the lock.
+     * @return {@code false} if the event has been merged into a queued duplicate.
+     */
+    private boolean makeRoomFor(ArrayDeque<Event> lane, Event event) {
+        boolean mayBlock = overflowPolicy == OverflowPolicy.BLOCK && lane == highPriorityLane
+                && Looper.myLooper() != Looper.getMainLooper();
+        boolean coalesce = overflowPolicy == OverflowPolicy.COALESCE || (overflowPolicy == OverflowPolicy.BLOCK && !mayBlock);
+        if (coalesce && event.coalesceKey != null && lane.size() >= capacity) {
+            for (Event queued : lane) {
+                if (queued.target == event.target && event.coalesceKey.equals(queued.coalesceKey)) {
+                    queued.payload = event.payload;
+                    dropped.incrementAndGet();
+                    return false;
+                }
+            }
+        }
+        while (lane.size() >= capacity) {
+            if (mayBlock) {
+                flusher.execute(flushRunnable);
+                try {
+                    lock.wait();
+                } catch (InterruptedException ex) {
+                    Log.e(TAG, "Interrupted while waiting to queue an event", ex);
+                    Thread.currentThread().interrupt();
+                    lane.pollFirst();
+                    dropped.incrementAndGet();
+                }
+            } else {
+                lane.pollFirst();
+                dropped.incrementAndGet();
+            }
+        }
+        return true;
+    }
+
+    private static List<Event> poll(ArrayDeque<Event> lane, int count) {
+        List<Event> rtn = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            rtn.add(lane.pollFirst());
+        }
+        return rtn;
+    }
+
+    private static void deliver(List<Event> events) {
+        int start = 0;
+        while (start < events.size()) {
+            CallbackContext target = events.get(start).target;
+            int end = start + 1;
+            while (end < events.size() && events.get(end).target == target) {
+                ++end;
+            }
+            PluginResult result;
+            if (end - start == 1) {
+                result = new PluginResult(PluginResult.Status.OK, events.get(start).payload);
+            } else {
+                JSONArray batch = new Batch();
+                for (int i = start; i < end; ++i) {
+                    batch.put(events.get(i).payload);
+                }
+                result = new PluginResult(PluginResult.Status.OK, batch);
+            }
+            result.setKeepCallback(true);
+            target.sendPluginResult(result);
+            start = end;
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.wonderpush.sdk.cordova;
+
+/**
+ * Drops geolocation fixes too close in distance and in time to the last reported one.
+ *
+ * A fix is reported if it moved at least the minimum distance, or if at least the minimum interval elapsed,
+ * a threshold of {@code 0} being ignored. With both thresholds at {@code 0}, the default, every fix is reported.
+ *
+ * This class is not thread-safe, it must only be used from the plugin serial executor.
+ */
+class GeolocationFilter {
+
+    private static final double EARTH_RADIUS_METERS = 6371008.8;
+
+    private double minDistanceMeters;
+    private long minIntervalMs;
+    private boolean hasLast;
+    private double lastLatitude;
+    private double lastLongitude;
+    private long lastReportedAtMs;
+
+    void setThresholds(double minDistanceMeters, long minIntervalMs) {
+        this.minDistanceMeters = Math.max(0, minDistanceMeters);
+        this.minIntervalMs = Math.max(0, minIntervalMs);
+    }
+
+    /**
+     * Tells whether the given fix should be reported, and remembers it if so.
+     * @param nowMs A monotonic clock, in milliseconds.
+     */
+    boolean accept(double latitude, double longitude, long nowMs) {
+        if (hasLast && (minDistanceMeters > 0 || minIntervalMs > 0)) {
+            boolean elapsed = minIntervalMs > 0 && nowMs - lastReportedAtMs >= minIntervalMs;
+            boolean moved = !elapsed && minDistanceMeters > 0
+                    && distanceMeters(lastLatitude, lastLongitude, latitude, longitude) >= minDistanceMeters;
+            if (!elapsed && !moved) {
+                return false;
+            }
+        }
+        hasLast = true;
+        lastLatitude = latitude;
+        lastLongitude = longitude;
+        lastReportedAtMs = nowMs;
+        return true;
+    }
+
+    /**
+     * Forgets the last reported fix, so that the next one is reported.
+     */
+    void reset() {
+        hasLast = false;
+    }
+
+    /**
+     * Great-circle distance between two points, using the haversine formula.
+     */
+    static double distanceMeters(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double phi1 = Math.toRadians(latitude1);
+        double phi2 = Math.toRadians(latitude2);
+        double sinHalfDeltaPhi = Math.sin((phi2 - phi1) / 2);
+        double sinHalfDeltaLambda = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        double a = sinHalfDeltaPhi * sinHalfDeltaPhi
+                + Math.cos(phi1) * Math.cos(phi2) * sinHalfDeltaLambda * sinHalfDeltaLambda;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.wonderpush.sdk.cordova;
+
+/**
+ * Cheap non-cryptographic hashes.
+ */
+final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the given string, over its UTF-16 code units.
+     */
+    static long fnv1a64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0, e = value.length(); i < e; ++i) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.wonderpush.sdk.cordova;
+
+import org.apache.cordova.PluginResult;
+
+import org.json.JSONArray;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versioned cache of the results of installation getters.
+ *
+ * Results are cached as {@link PluginResult}, which hold their already serialized message,
+ * so that repeated reads neither query the SDK nor serialize again.
+ * Any call to {@link #invalidate()} makes all cached results stale, including results being computed.
+ * Results also expire after a short time, as the SDK can change the installation on its own,
+ * like when applying an in-app message action or synchronizing with the server.
+ */
+class InstallationCache {
+
+    private static final int CAPACITY = 64;
+    static final int DEFAULT_TTL_MS = 1000;
+
+    private static class CachedResult {
+        final long version;
+        final long cachedAtNanos;
+        final PluginResult result;
+
+        CachedResult(long version, long cachedAtNanos, PluginResult result) {
+            this.version = version;
+            this.cachedAtNanos = cachedAtNanos;
+            this.result = result;
+        }
+    }
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile long ttlNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TTL_MS);
+    private final Map<String, CachedResult> entries = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    static String key(String action, JSONArray args) {
+        return args == null || args.length() == 0 ? action : action + args.toString();
+    }
+
+    /**
+     * Sets how long results are served, {@code 0} to disable caching.
+     */
+    void setTtlMs(long ttlMs) {
+        ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMs));
+    }
+
+    /**
+     * Returns the current version, to be given to {@link #put(String, long, PluginResult)}
+     * along with a result computed afterwards.
+     */
+    long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Marks all cached results as stale. Can be called from any thread.
+     */
+    void invalidate() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Returns the cached result for the given key, or {@code null} if there is none or if it is stale.
+     */
+    synchronized PluginResult get(String key) {
+        CachedResult entry = entries.get(key);
+        if (entry == null) return null;
+        if (entry.version != version.get() || System.nanoTime() - entry.cachedAtNanos >= ttlNanos) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.result;
+    }
+
+    /**
+     * Caches a result computed after reading the given version, unless the cache has been invalidated since.
+     */
+    synchronized void put(String key, long version, PluginResult result) {
+        if (version != this.version.get() || ttlNanos == 0) return;
+        entries.put(key, new CachedResult(version, System.nanoTime(), result));
+    }
+
+}
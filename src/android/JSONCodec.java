@@ -0,0 +1,209 @@
+package com.wonderpush.sdk.cordova;
+
+import android.net.Uri;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts typed objects crossing the bridge from and to JSON, following a table of field descriptors built once.
+ *
+ * Decoding looks each field up once, values of an unexpected type being read as {@code null}, like {@link JSONUtil}.
+ * Encoding omits {@code null} values.
+ */
+class JSONCodec<T> {
+
+    /**
+     * Creates the decoded object, reading the fields given to its constructor.
+     */
+    interface Factory<T> {
+        T create(JSONObject input) throws JSONException;
+    }
+
+    abstract static class Field<T> {
+        final String name;
+        final boolean constructorArgument;
+
+        Field(String name, boolean constructorArgument) {
+            this.name = name;
+            this.constructorArgument = constructorArgument;
+        }
+
+        /**
+         * @param raw The value as returned by {@link JSONObject#opt(String)}.
+         */
+        abstract void read(T target, Object raw);
+
+        /**
+         * @return The JSON value, or {@code null} to omit it.
+         */
+        abstract Object write(T source);
+    }
+
+    abstract static class StringField<T> extends Field<T> {
+        StringField(String name) {
+            this(name, false);
+        }
+
+        StringField(String name, boolean constructorArgument) {
+            super(name, constructorArgument);
+        }
+
+        @Override
+        final void read(T target, Object raw) {
+            set(target, raw instanceof String ? (String) raw : null);
+        }
+
+        @Override
+        final Object write(T source) {
+            return get(source);
+        }
+
+        void set(T target, String value) {
+        }
+
+        abstract String get(T source);
+    }
+
+    abstract static class BooleanField<T> extends Field<T> {
+        BooleanField(String name) {
+            super(name, false);
+        }
+
+        @Override
+        final void read(T target, Object raw) {
+            set(target, raw instanceof Boolean ? (Boolean) raw : null);
+        }
+
+        @Override
+        final Object write(T source) {
+            return get(source);
+        }
+
+        abstract void set(T target, Boolean value);
+
+        abstract Boolean get(T source);
+    }
+
+    abstract static class IntegerField<T> extends Field<T> {
+        IntegerField(String name) {
+            super(name, false);
+        }
+
+        @Override
+        final void read(T target, Object raw) {
+            if (raw instanceof Integer) {
+                set(target, (Integer) raw);
+            } else if (raw instanceof Number) {
+                set(target, ((Number) raw).intValue());
+            } else {
+                set(target, null);
+            }
+        }
+
+        @Override
+        final Object write(T source) {
+            return get(source);
+        }
+
+        abstract void set(T target, Integer value);
+
+        abstract Integer get(T source);
+    }
+
+    abstract static class LongArrayField<T> extends Field<T> {
+        LongArrayField(String name) {
+            super(name, false);
+        }
+
+        @Override
+        final void read(T target, Object raw) {
+            set(target, raw instanceof JSONArray ? toLongArray((JSONArray) raw) : null);
+        }
+
+        @Override
+        final Object write(T source) {
+            long[] value = get(source);
+            // Serialized as an explicit null when missing, unlike other fields
+            if (value == null) return JSONObject.NULL;
+            JSONArray rtn = new JSONArray();
+            for (long item : value) {
+                rtn.put(item);
+            }
+            return rtn;
+        }
+
+        abstract void set(T target, long[] value);
+
+        abstract long[] get(T source);
+
+        private static long[] toLongArray(JSONArray array) {
+            long[] rtn = new long[array.length()];
+            for (int i = 0; i < rtn.length; ++i) {
+                Object item = array.opt(i);
+                if (!(item instanceof Number)) return null;
+                rtn[i] = ((Number) item).longValue();
+            }
+            return rtn;
+        }
+    }
+
+    abstract static class UriField<T> extends Field<T> {
+        UriField(String name) {
+            super(name, false);
+        }
+
+        @Override
+        final void read(T target, Object raw) {
+            set(target, raw == null || raw == JSONObject.NULL ? null : Uri.parse(raw.toString()));
+        }
+
+        @Override
+        final Object write(T source) {
+            Uri value = get(source);
+            return value == null ? null : value.toString();
+        }
+
+        abstract void set(T target, Uri value);
+
+        abstract Uri get(T source);
+    }
+
+    private final Factory<T> factory;
+    private final Field<T>[] fields;
+    private final Field<T>[] decodedFields;
+
+    @SuppressWarnings("unchecked")
+    JSONCodec(Factory<T> factory, Field<T>... fields) {
+        this.factory = factory;
+        this.fields = fields;
+        List<Field<T>> decodedFields = new ArrayList<>(fields.length);
+        for (Field<T> field : fields) {
+            if (!field.constructorArgument) {
+                decodedFields.add(field);
+            }
+        }
+        this.decodedFields = decodedFields.toArray(new Field[decodedFields.size()]);
+    }
+
+    T decode(JSONObject input) throws JSONException {
+        T rtn = factory.create(input);
+        for (Field<T> field : decodedFields) {
+            field.read(rtn, input.opt(field.name));
+        }
+        return rtn;
+    }
+
+    JSONObject encode(T source) throws JSONException {
+        JSONObject rtn = new JSONObject();
+        for (Field<T> field : fields) {
+            rtn.putOpt(field.name, field.write(source));
+        }
+        return rtn;
+    }
+
+}
@@ -7,10 +7,8 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -83,6 +81,24 @@ class JSONUtil {
         return Uri.parse(value);
     }
 
+    /**
+     * Returns the {@code _wp} object of a notification, parsing it if it is still a string.
+     */
+    static JSONObject optWonderPushData(JSONObject notification) {
+        if (notification == null) return null;
+        Object value = notification.opt("_wp");
+        if (value instanceof JSONObject) {
+            return (JSONObject) value;
+        } else if (value instanceof String) {
+            try {
+                return new JSONObject((String) value);
+            } catch (JSONException ex) {
+                return null;
+            }
+        }
+        return null;
+    }
+
     /**
      * @see JSONObject#wrap(Object)
      */
@@ -90,7 +106,17 @@ class JSONUtil {
         if (o == null) {
             return JSONObject.NULL;
         }
-        if (o instanceof JSONArray || o instanceof JSONObject) {
+        if (o instanceof String ||
+                o instanceof Boolean ||
+                o instanceof Integer ||
+                o instanceof Long ||
+                o instanceof Double ||
+                o instanceof JSONArray ||
+                o instanceof JSONObject ||
+                o instanceof Float ||
+                o instanceof Short ||
+                o instanceof Byte ||
+                o instanceof Character) {
             return o;
         }
         if (o.equals(JSONObject.NULL)) {
@@ -98,25 +124,13 @@ class JSONUtil {
         }
         try {
             if (o instanceof Collection) {
-                return new JSONArray((Collection) o);
+                return JSONArray((Collection<?>) o);
+            } else if (o instanceof Map) {
+                return JSONObject((Map<?, ?>) o);
             } else if (o.getClass().isArray()) {
                 return JSONArray(o);
             }
-            if (o instanceof Map) {
-                return new JSONObject((Map) o);
-            }
-            if (o instanceof Boolean ||
-                    o instanceof Byte ||
-                    o instanceof Character ||
-                    o instanceof Double ||
-                    o instanceof Float ||
-                    o instanceof Integer ||
-                    o instanceof Long ||
-                    o instanceof Short ||
-                    o instanceof String) {
-                return o;
-            }
-            if (o.getClass().getPackage().getName().startsWith("java.")) {
+            if (o.getClass().getName().startsWith("java.")) {
                 return o.toString();
             }
         } catch (Exception ignored) {
@@ -128,13 +142,71 @@ class JSONUtil {
      * @see JSONArray#JSONArray(Object)
      */
     static JSONArray JSONArray(Object array) throws JSONException {
-        if (!array.getClass().isArray()) {
+        final JSONArray rtn = new JSONArray();
+        if (array instanceof Object[]) {
+            for (Object item : (Object[]) array) {
+                rtn.put(wrap(item));
+            }
+        } else if (array instanceof long[]) {
+            for (long item : (long[]) array) {
+                rtn.put(item);
+            }
+        } else if (array instanceof int[]) {
+            for (int item : (int[]) array) {
+                rtn.put(item);
+            }
+        } else if (array instanceof double[]) {
+            for (double item : (double[]) array) {
+                rtn.put(item);
+            }
+        } else if (array instanceof boolean[]) {
+            for (boolean item : (boolean[]) array) {
+                rtn.put(item);
+            }
+        } else if (array instanceof float[]) {
+            for (float item : (float[]) array) {
+                // Boxed, so that 0.1f is written as 0.1 like before, not as 0.10000000149011612
+                rtn.put(Float.valueOf(item));
+            }
+        } else if (array instanceof short[]) {
+            for (short item : (short[]) array) {
+                rtn.put((int) item);
+            }
+        } else if (array instanceof byte[]) {
+            for (byte item : (byte[]) array) {
+                rtn.put((int) item);
+            }
+        } else if (array instanceof char[]) {
+            for (char item : (char[]) array) {
+                rtn.put(Character.valueOf(item));
+            }
+        } else {
             throw new JSONException("Not a primitive array: " + array.getClass());
         }
+        return rtn;
+    }
+
+    /**
+     * @see JSONArray#JSONArray(Collection)
+     */
+    static JSONArray JSONArray(Collection<?> collection) {
         final JSONArray rtn = new JSONArray();
-        final int length = Array.getLength(array);
-        for (int i = 0; i < length; ++i) {
-            rtn.put(wrap(Array.get(array, i)));
+        for (Object item : collection) {
+            rtn.put(wrap(item));
+        }
+        return rtn;
+    }
+
+    /**
+     * @see JSONObject#JSONObject(Map)
+     */
+    static JSONObject JSONObject(Map<?, ?> map) throws JSONException {
+        final JSONObject rtn = new JSONObject();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (entry.getKey() == null) {
+                throw new JSONException("Null key in map");
+            }
+            rtn.put(String.valueOf(entry.getKey()), wrap(entry.getValue()));
         }
         return rtn;
     }
@@ -0,0 +1,325 @@
+package com.wonderpush.sdk.cordova;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide counters and latency histograms of the plugin, shared by all plugin instances.
+ * Recording is lock-free and can happen from any thread.
+ */
+final class Metrics {
+
+    private Metrics() {
+    }
+
+    /**
+     * Log-linear histogram of non-negative values, with 4 buckets per power of two, hence a precision of 25%.
+     * Values above 2^31 are counted in the last bucket.
+     */
+    static class Histogram {
+        private static final int SUB_BUCKETS = 4;
+        private static final int MAX_EXPONENT = 31;
+        // Plus one bucket for values above 2^MAX_EXPONENT
+        private static final int BUCKETS = (MAX_EXPONENT - 1) * SUB_BUCKETS + 1;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            if (value < 0) value = 0;
+            buckets.incrementAndGet(bucketIndex(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            updateMax(max, value);
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; ++i) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+
+        JSONObject toJSON() throws JSONException {
+            JSONObject rtn = new JSONObject();
+            long count = this.count.get();
+            rtn.put("count", count);
+            if (count == 0) return rtn;
+            rtn.put("mean", sum.get() / count);
+            rtn.put("p50", percentile(count, 0.50));
+            rtn.put("p90", percentile(count, 0.90));
+            rtn.put("p99", percentile(count, 0.99));
+            rtn.put("max", max.get());
+            return rtn;
+        }
+
+        private long percentile(long count, double quantile) {
+            long target = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; ++i) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    return Math.min(bucketUpperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        private static int bucketIndex(long value) {
+            if (value < SUB_BUCKETS) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            if (exponent >= MAX_EXPONENT) return BUCKETS - 1;
+            int subBucket = (int) (value >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+            return (exponent - 1) * SUB_BUCKETS + subBucket;
+        }
+
+        private static long bucketUpperBound(int index) {
+            if (index < SUB_BUCKETS) return index;
+            // Unbounded, percentiles falling there are clamped to the max
+            if (index == BUCKETS - 1) return Long.MAX_VALUE;
+            int exponent = index / SUB_BUCKETS + 1;
+            int subBucket = index % SUB_BUCKETS;
+            long lowerBound = (long) (SUB_BUCKETS + subBucket) << (exponent - 2);
+            return lowerBound + (1L << (exponent - 2)) - 1;
+        }
+    }
+
+    private static class ActionMetrics {
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final Histogram latencyUs = new Histogram();
+
+        void reset() {
+            calls.set(0);
+            errors.set(0);
+            latencyUs.reset();
+        }
+    }
+
+    private static final ConcurrentMap<String, ActionMetrics> actions = new ConcurrentHashMap<>();
+    private static final Histogram[] queueWaitUs = new Histogram[WonderPushPlugin.Threading.values().length];
+    private static final Histogram payloadChars = new Histogram();
+    private static final Histogram jsCallbackRoundTripUs = new Histogram();
+    private static final AtomicLong jsCallbackTimeouts = new AtomicLong();
+    private static final AtomicInteger savedNotificationsHighWaterMark = new AtomicInteger();
+    private static final AtomicLong geolocationAccepted = new AtomicLong();
+    private static final AtomicLong geolocationDropped = new AtomicLong();
+    private static final AtomicLong duplicatesSuppressed = new AtomicLong();
+    private static final AtomicInteger[] eventLaneDepth = new AtomicInteger[EventChannel.Priority.values().length];
+    private static final AtomicInteger[] eventLaneHighWaterMark = new AtomicInteger[EventChannel.Priority.values().length];
+    // Startup of the last initialized plugin instance, not affected by reset()
+    private static volatile long pluginInitializedAt;
+    private static volatile long pluginInitializeUs = -1;
+    private static volatile String firstExecuteAction;
+    private static volatile long firstExecuteDelayUs = -1;
+    private static volatile long firstExecuteUs = -1;
+
+    static {
+        for (int i = 0; i < queueWaitUs.length; ++i) {
+            queueWaitUs[i] = new Histogram();
+        }
+        for (int i = 0; i < eventLaneDepth.length; ++i) {
+            eventLaneDepth[i] = new AtomicInteger();
+            eventLaneHighWaterMark[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Records the execution of an action, excluding the time it waited to be executed.
+     */
+    static void recordAction(String name, long durationNanos, boolean failed) {
+        ActionMetrics metrics = actions.get(name);
+        if (metrics == null) {
+            ActionMetrics created = new ActionMetrics();
+            metrics = actions.putIfAbsent(name, created);
+            if (metrics == null) metrics = created;
+        }
+        metrics.calls.incrementAndGet();
+        if (failed) metrics.errors.incrementAndGet();
+        metrics.latencyUs.record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+    }
+
+    /**
+     * Records the time an action waited before being executed off the calling thread.
+     */
+    static void recordQueueWait(WonderPushPlugin.Threading threading, long durationNanos) {
+        queueWaitUs[threading.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+    }
+
+    /**
+     * Records the size of a serialized message sent to JavaScript.
+     */
+    static void recordPayload(int chars) {
+        payloadChars.record(chars);
+    }
+
+    /**
+     * Records the time JavaScript took to answer a native call.
+     */
+    static void recordJsCallback(long durationNanos) {
+        jsCallbackRoundTripUs.record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+    }
+
+    static void recordJsCallbackTimeout() {
+        jsCallbackTimeouts.incrementAndGet();
+    }
+
+    /**
+     * Records the number of notifications waiting for the JavaScript delegate to be ready.
+     */
+    static void recordSavedNotifications(int size) {
+        updateMax(savedNotificationsHighWaterMark, size);
+    }
+
+    /**
+     * Records whether a geolocation fix passed the filter of {@code setGeolocation}.
+     */
+    static void recordGeolocation(boolean accepted) {
+        (accepted ? geolocationAccepted : geolocationDropped).incrementAndGet();
+    }
+
+    /**
+     * Records the number of events waiting in a lane of the {@link EventChannel}.
+     */
+    static void recordEventLaneDepth(EventChannel.Priority priority, int depth) {
+        eventLaneDepth[priority.ordinal()].set(depth);
+        updateMax(eventLaneHighWaterMark[priority.ordinal()], depth);
+    }
+
+    /**
+     * Records a notification open or registered callback not forwarded to JavaScript because it was a duplicate.
+     */
+    static void recordDuplicateSuppressed() {
+        duplicatesSuppressed.incrementAndGet();
+    }
+
+    /**
+     * Records the time spent in {@code pluginInitialize}.
+     */
+    static void recordPluginInitialize(long durationNanos) {
+        pluginInitializedAt = System.nanoTime();
+        pluginInitializeUs = TimeUnit.NANOSECONDS.toMicros(durationNanos);
+        firstExecuteAction = null;
+        firstExecuteDelayUs = -1;
+        firstExecuteUs = -1;
+    }
+
+    /**
+     * Records the first action called after {@code pluginInitialize}, when it was called and how long it took to dispatch.
+     */
+    static void recordFirstExecute(String action, long startedAt, long durationNanos) {
+        firstExecuteAction = action;
+        firstExecuteDelayUs = TimeUnit.NANOSECONDS.toMicros(startedAt - pluginInitializedAt);
+        firstExecuteUs = TimeUnit.NANOSECONDS.toMicros(durationNanos);
+    }
+
+    /**
+     * Returns a snapshot of all metrics. Latencies are in microseconds.
+     */
+    static JSONObject snapshot() throws JSONException {
+        JSONObject rtn = new JSONObject();
+
+        JSONObject actionsJson = new JSONObject();
+        for (Map.Entry<String, ActionMetrics> entry : actions.entrySet()) {
+            ActionMetrics metrics = entry.getValue();
+            JSONObject actionJson = new JSONObject();
+            actionJson.put("calls", metrics.calls.get());
+            actionJson.put("errors", metrics.errors.get());
+            actionJson.put("latencyUs", metrics.latencyUs.toJSON());
+            actionsJson.put(entry.getKey(), actionJson);
+        }
+        rtn.put("actions", actionsJson);
+
+        JSONObject queueWaitJson = new JSONObject();
+        for (WonderPushPlugin.Threading threading : WonderPushPlugin.Threading.values()) {
+            if (threading == WonderPushPlugin.Threading.INLINE) continue;
+            queueWaitJson.put(threading.name().toLowerCase(Locale.ROOT), queueWaitUs[threading.ordinal()].toJSON());
+        }
+        rtn.put("queueWaitUs", queueWaitJson);
+
+        rtn.put("payloadChars", payloadChars.toJSON());
+
+        JSONObject jsCallbacksJson = new JSONObject();
+        jsCallbacksJson.put("roundTripUs", jsCallbackRoundTripUs.toJSON());
+        jsCallbacksJson.put("timeouts", jsCallbackTimeouts.get());
+        rtn.put("jsCallbacks", jsCallbacksJson);
+
+        JSONObject savedNotificationsJson = new JSONObject();
+        savedNotificationsJson.put("size", Delegate.getSavedNotificationsCount());
+        savedNotificationsJson.put("highWaterMark", savedNotificationsHighWaterMark.get());
+        savedNotificationsJson.put("dropped", Delegate.getDroppedSavedNotificationsCount());
+        rtn.put("savedNotifications", savedNotificationsJson);
+
+        JSONObject geolocationJson = new JSONObject();
+        geolocationJson.put("accepted", geolocationAccepted.get());
+        geolocationJson.put("dropped", geolocationDropped.get());
+        rtn.put("geolocation", geolocationJson);
+
+        rtn.put("duplicatesSuppressed", duplicatesSuppressed.get());
+
+        JSONObject eventLanesJson = new JSONObject();
+        for (EventChannel.Priority priority : EventChannel.Priority.values()) {
+            JSONObject laneJson = new JSONObject();
+            laneJson.put("depth", eventLaneDepth[priority.ordinal()].get());
+            laneJson.put("highWaterMark", eventLaneHighWaterMark[priority.ordinal()].get());
+            eventLanesJson.put(priority.name().toLowerCase(Locale.ROOT), laneJson);
+        }
+        rtn.put("eventLanes", eventLanesJson);
+
+        JSONObject startupJson = new JSONObject();
+        startupJson.put("pluginInitializeUs", pluginInitializeUs);
+        startupJson.putOpt("firstExecuteAction", firstExecuteAction);
+        startupJson.put("firstExecuteDelayUs", firstExecuteDelayUs);
+        startupJson.put("firstExecuteUs", firstExecuteUs);
+        rtn.put("startup", startupJson);
+
+        return rtn;
+    }
+
+    static void reset() {
+        for (ActionMetrics metrics : actions.values()) {
+            metrics.reset();
+        }
+        for (Histogram histogram : queueWaitUs) {
+            histogram.reset();
+        }
+        payloadChars.reset();
+        jsCallbackRoundTripUs.reset();
+        jsCallbackTimeouts.set(0);
+        savedNotificationsHighWaterMark.set(Delegate.getSavedNotificationsCount());
+        geolocationAccepted.set(0);
+        geolocationDropped.set(0);
+        duplicatesSuppressed.set(0);
+        for (int i = 0; i < eventLaneDepth.length; ++i) {
+            eventLaneHighWaterMark[i].set(eventLaneDepth[i].get());
+        }
+    }
+
+    private static void updateMax(AtomicInteger max, int value) {
+        int current;
+        do {
+            current = max.get();
+        } while (value > current && !max.compareAndSet(current, value));
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        do {
+            current = max.get();
+        } while (value > current && !max.compareAndSet(current, value));
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.wonderpush.sdk.cordova;
+
+import android.os.Bundle;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Converts the extras of a push notification intent into the JSON notification given to JavaScript.
+ *
+ * String values looking like JSON objects, like {@code _wp}, are parsed.
+ * Conversions are cached by message id and raw {@code _wp} payload, which together identify the delivered message,
+ * so that opening the same notification again does not parse it again.
+ * Extras without a message id are not cached, as the other extras could differ for the same {@code _wp} payload.
+ */
+class NotificationBundleConverter {
+
+    private static final String TAG = "WonderPush";
+    private static final String KEY_WONDERPUSH_DATA = "_wp";
+    private static final String KEY_MESSAGE_ID = "google.message_id";
+    private static final int CACHE_CAPACITY = 16;
+
+    private final Map<String, JSONObject> cache = new LinkedHashMap<String, JSONObject>(CACHE_CAPACITY, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, JSONObject> eldest) {
+            return size() > CACHE_CAPACITY;
+        }
+    };
+
+    /**
+     * Returns the JSON notification for the given extras.
+     * The returned object may be shared with previous calls and must not be modified.
+     */
+    JSONObject convert(Bundle extras) {
+        String cacheKey = getCacheKey(extras);
+        if (cacheKey != null) {
+            synchronized (cache) {
+                JSONObject cached = cache.get(cacheKey);
+                if (cached != null) return cached;
+            }
+        }
+
+        JSONObject notification = new JSONObject();
+        for (String key : extras.keySet()) {
+            Object value = extras.get(key);
+            try {
+                notification.putOpt(key, convertValue(key, value));
+            } catch (JSONException ex) {
+                Log.e(TAG, "Unexpected error while transforming received notification intent to JSON for property " + key + " of value " + value, ex);
+            }
+        }
+
+        if (cacheKey != null) {
+            synchronized (cache) {
+                cache.put(cacheKey, notification);
+            }
+        }
+        return notification;
+    }
+
+    private static String getCacheKey(Bundle extras) {
+        Object wpData = extras.get(KEY_WONDERPUSH_DATA);
+        Object messageId = extras.get(KEY_MESSAGE_ID);
+        if (!(wpData instanceof String) || !(messageId instanceof String)) return null;
+        // The same notification can be delivered more than once, with a different message id
+        return messageId + "\n" + wpData;
+    }
+
+    private static Object convertValue(String key, Object value) {
+        if (value instanceof String) {
+            String valueStr = (String) value;
+            int length = valueStr.length();
+            if (length >= 2 && valueStr.charAt(0) == '{' && valueStr.charAt(length - 1) == '}') {
+                try {
+                    return new JSONObject(valueStr);
+                } catch (JSONException ex) {
+                    Log.d(TAG, "Tried to parse a seemingly JSON value for notification field " + key + " with value " + valueStr, ex);
+                }
+            }
+            return valueStr;
+        }
+        return JSONUtil.wrap(value);
+    }
+
+}
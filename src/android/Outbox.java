@@ -0,0 +1,292 @@
+package com.wonderpush.sdk.cordova;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bounded queue of the actions called while the SDK cannot take them yet, persisted to an append-only file.
+ *
+ * Added operations are written to the file together by {@link #sync()}, so that a burst of calls costs a single write.
+ * Operations are replayed one by one with {@link #peek()} and {@link #consume(Operation)}, which records each of them
+ * as consumed in the file, like {@link SavedNotificationsBuffer} does, so that a replay interrupted by the process dying
+ * resumes where it stopped instead of applying everything again.
+ * A {@code setProperty} or {@code unsetProperty} supersedes the queued operations on the same field,
+ * and adding or removing a single tag supersedes the queued operations on the same tag.
+ *
+ * This class is not thread-safe, it must only be used from the plugin serial executor.
+ */
+class Outbox {
+
+    private static final String TAG = "WonderPush";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static final int DEFAULT_CAPACITY = 1000;
+    private static final String CONSUMED = "consumed";
+
+    static class Operation {
+        // Identifies the operation in the file, increasing in the order operations were added
+        final long seq;
+        final String action;
+        final JSONArray args;
+        // Identifies the operations superseding each other, or null
+        final String key;
+
+        Operation(long seq, String action, JSONArray args) {
+            this.seq = seq;
+            this.action = action;
+            this.args = args;
+            this.key = key(action, args);
+        }
+
+        JSONObject toJSON() throws JSONException {
+            JSONObject rtn = new JSONObject();
+            rtn.put("seq", seq);
+            rtn.put("action", action);
+            rtn.put("args", args);
+            return rtn;
+        }
+
+        /**
+         * @param defaultSeq The sequence number to use if the operation has none.
+         */
+        static Operation fromJSON(JSONObject json, long defaultSeq) {
+            String action = JSONUtil.optString(json, "action");
+            if (action == null) return null;
+            JSONArray args = json.optJSONArray("args");
+            return new Operation(json.optLong("seq", defaultSeq), action, args != null ? args : new JSONArray());
+        }
+
+        private static String key(String action, JSONArray args) {
+            Object subject = args.opt(0);
+            if (!(subject instanceof String)) return null;
+            switch (action) {
+                case "setProperty":
+                case "unsetProperty":
+                case "addProperty":
+                case "removeProperty":
+                    return "property:" + subject;
+                case "addTag":
+                case "removeTag":
+                    return "tag:" + subject;
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Whether this operation makes the queued operations with the same key useless.
+         */
+        boolean supersedes() {
+            return key != null && !"addProperty".equals(action) && !"removeProperty".equals(action);
+        }
+    }
+
+    private final File file;
+    private final int capacity;
+    private final List<Operation> operations = new ArrayList<>();
+    private final StringBuilder pendingWrites = new StringBuilder();
+    private int pendingLines;
+    private int fileLines;
+    private int dropped;
+    private long nextSeq;
+
+    /**
+     * Loads the operations left in the given file.
+     */
+    Outbox(File file, int capacity) {
+        this.file = file;
+        this.capacity = Math.max(1, capacity);
+        load();
+    }
+
+    boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    int size() {
+        return operations.size();
+    }
+
+    /**
+     * Returns how many operations were dropped because the outbox was full.
+     */
+    int getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Queues an operation, to be written by the next {@link #sync()}.
+     */
+    void add(String action, JSONArray args) {
+        Operation operation = new Operation(nextSeq++, action, args);
+        enqueue(operation);
+        try {
+            pendingWrites.append(operation.toJSON().toString()).append('\n');
+            ++pendingLines;
+        } catch (JSONException ex) {
+            Log.e(TAG, "Could not write " + action + " to the outbox", ex);
+        }
+    }
+
+    /**
+     * Returns the oldest queued operation, without removing it, or {@code null} if there is none.
+     */
+    Operation peek() {
+        return operations.isEmpty() ? null : operations.get(0);
+    }
+
+    /**
+     * Removes an operation once it has been applied.
+     * It is recorded as consumed in the file right away, without waiting for the disk, which survives the process dying.
+     * The file is deleted once everything has been consumed.
+     */
+    void consume(Operation operation) {
+        if (!operations.remove(operation)) return;
+        if (operations.isEmpty()) {
+            clear();
+            return;
+        }
+        // Also written if the operation is not synced yet, as syncing will write it afterwards
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(file, true);
+            out.write(("{\"" + CONSUMED + "\":" + operation.seq + "}\n").getBytes(UTF8));
+            ++fileLines;
+        } catch (IOException ex) {
+            Log.e(TAG, "Could not record consumed outbox operation " + operation.action, ex);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    void clear() {
+        operations.clear();
+        pendingWrites.setLength(0);
+        pendingLines = 0;
+        if (fileLines > 0 || file.exists()) {
+            if (!file.delete() && file.exists()) {
+                Log.w(TAG, "Could not delete outbox " + file);
+            }
+            fileLines = 0;
+        }
+    }
+
+    /**
+     * Writes the operations added since the last call and waits for them to reach the disk.
+     * The file is rewritten instead once it holds too many superseded or dropped operations.
+     */
+    void sync() {
+        if (pendingLines == 0) return;
+        int lines = pendingLines;
+        boolean rewrite = fileLines + lines > 2 * operations.size();
+        String content;
+        if (rewrite) {
+            StringBuilder sb = new StringBuilder();
+            for (Operation operation : operations) {
+                try {
+                    sb.append(operation.toJSON().toString()).append('\n');
+                } catch (JSONException ex) {
+                    Log.e(TAG, "Could not write " + operation.action + " to the outbox", ex);
+                }
+            }
+            content = sb.toString();
+            lines = operations.size();
+        } else {
+            content = pendingWrites.toString();
+        }
+        pendingWrites.setLength(0);
+        pendingLines = 0;
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(file, !rewrite);
+            out.write(content.getBytes(UTF8));
+            out.flush();
+            out.getFD().sync();
+            fileLines = rewrite ? lines : fileLines + lines;
+        } catch (IOException ex) {
+            Log.e(TAG, "Could not write outbox " + file, ex);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private void enqueue(Operation operation) {
+        if (operation.supersedes()) {
+            Iterator<Operation> it = operations.iterator();
+            while (it.hasNext()) {
+                if (operation.key.equals(it.next().key)) {
+                    it.remove();
+                }
+            }
+        }
+        operations.add(operation);
+        while (operations.size() > capacity) {
+            Operation oldest = operations.remove(0);
+            ++dropped;
+            Log.w(TAG, "Outbox full, dropping " + oldest.action);
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+        List<Operation> loaded = new ArrayList<>();
+        Set<Long> consumed = new HashSet<>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                ++fileLines;
+                try {
+                    JSONObject json = new JSONObject(line);
+                    if (json.has(CONSUMED)) {
+                        consumed.add(json.getLong(CONSUMED));
+                        continue;
+                    }
+                    // Sequence numbers only grow, the line number is a fine fallback
+                    Operation operation = Operation.fromJSON(json, fileLines);
+                    if (operation != null) loaded.add(operation);
+                } catch (JSONException ex) {
+                    Log.w(TAG, "Skipping unreadable outbox operation", ex);
+                }
+            }
+        } catch (IOException ex) {
+            Log.e(TAG, "Could not read outbox " + file, ex);
+        } finally {
+            closeQuietly(reader);
+        }
+        for (Operation operation : loaded) {
+            nextSeq = Math.max(nextSeq, operation.seq + 1);
+            if (!consumed.contains(operation.seq)) {
+                enqueue(operation);
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+}
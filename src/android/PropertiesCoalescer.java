@@ -0,0 +1,162 @@
+package com.wonderpush.sdk.cordova;
+
+import android.util.Log;
+
+import com.wonderpush.sdk.WonderPush;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optional write-behind layer merging the installation property mutations made within a time window.
+ *
+ * Setting a field keeps the last written value, adding and removing values keeps the net set of changes.
+ * Upon {@link #flush()}, set fields are sent as a single {@link WonderPush#putProperties(JSONObject)} diff,
+ * and net additions and removals with {@link WonderPush#addProperty(String, Object)} and
+ * {@link WonderPush#removeProperty(String, Object)}.
+ *
+ * This class is not thread-safe, it must only be used from the plugin serial executor.
+ */
+class PropertiesCoalescer {
+
+    private static final String TAG = "WonderPush";
+
+    private static class PendingField {
+        boolean set;
+        Object value;
+        final LinkedHashSet<Object> added = new LinkedHashSet<>();
+        final LinkedHashSet<Object> removed = new LinkedHashSet<>();
+    }
+
+    private final Map<String, PendingField> pending = new LinkedHashMap<>();
+    private long windowMs;
+
+    /**
+     * Returns the coalescing window, {@code 0} meaning coalescing is disabled.
+     */
+    long getWindowMs() {
+        return windowMs;
+    }
+
+    void setWindowMs(long windowMs) {
+        this.windowMs = Math.max(0, windowMs);
+    }
+
+    boolean isEnabled() {
+        return windowMs > 0;
+    }
+
+    boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    void setProperty(String field, Object value) {
+        PendingField pendingField = getPendingField(field);
+        pendingField.set = true;
+        pendingField.value = value == null ? JSONObject.NULL : value;
+        pendingField.added.clear();
+        pendingField.removed.clear();
+    }
+
+    void unsetProperty(String field) {
+        setProperty(field, JSONObject.NULL);
+    }
+
+    void putProperties(JSONObject properties) {
+        Iterator<String> it = properties.keys();
+        while (it.hasNext()) {
+            String field = it.next();
+            setProperty(field, properties.opt(field));
+        }
+    }
+
+    void addProperty(String field, Object value) {
+        PendingField pendingField = getPendingField(field);
+        List<Object> values = toList(value);
+        if (pendingField.set) {
+            List<Object> current = toList(pendingField.value);
+            for (Object item : values) {
+                if (!current.contains(item)) current.add(item);
+            }
+            pendingField.value = new JSONArray(current);
+        } else {
+            pendingField.removed.removeAll(values);
+            pendingField.added.addAll(values);
+        }
+    }
+
+    void removeProperty(String field, Object value) {
+        PendingField pendingField = getPendingField(field);
+        List<Object> values = toList(value);
+        if (pendingField.set) {
+            List<Object> current = toList(pendingField.value);
+            current.removeAll(values);
+            pendingField.value = current.isEmpty() ? JSONObject.NULL : new JSONArray(current);
+        } else {
+            pendingField.added.removeAll(values);
+            pendingField.removed.addAll(values);
+        }
+    }
+
+    /**
+     * Applies all pending mutations to the SDK.
+     */
+    void flush() {
+        if (pending.isEmpty()) return;
+        JSONObject diff = new JSONObject();
+        for (Map.Entry<String, PendingField> entry : pending.entrySet()) {
+            String field = entry.getKey();
+            PendingField pendingField = entry.getValue();
+            if (pendingField.set) {
+                try {
+                    diff.put(field, pendingField.value);
+                } catch (JSONException ex) {
+                    Log.e(TAG, "Unexpected error while flushing property " + field, ex);
+                }
+            } else {
+                if (!pendingField.added.isEmpty()) {
+                    WonderPush.addProperty(field, new JSONArray(pendingField.added));
+                }
+                if (!pendingField.removed.isEmpty()) {
+                    WonderPush.removeProperty(field, new JSONArray(pendingField.removed));
+                }
+            }
+        }
+        pending.clear();
+        if (diff.length() > 0) {
+            WonderPush.putProperties(diff);
+        }
+    }
+
+    private PendingField getPendingField(String field) {
+        PendingField rtn = pending.get(field);
+        if (rtn == null) {
+            rtn = new PendingField();
+            pending.put(field, rtn);
+        }
+        return rtn;
+    }
+
+    private static List<Object> toList(Object value) {
+        List<Object> rtn = new ArrayList<>();
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            for (int i = 0, e = array.length(); i < e; ++i) {
+                Object item = array.opt(i);
+                if (item != null && item != JSONObject.NULL) rtn.add(item);
+            }
+        } else if (value != null && value != JSONObject.NULL) {
+            rtn.add(value);
+        }
+        return rtn;
+    }
+
+}
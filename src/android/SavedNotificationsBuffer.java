@@ -0,0 +1,306 @@
+package com.wonderpush.sdk.cordova;
+
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded buffer of the notifications received or opened before the JavaScript delegate is ready,
+ * kept in arrival order and optionally journaled to disk so that they survive process death.
+ * Many threads can add notifications concurrently without locking, unless journaling is enabled.
+ *
+ * The journal is append-only: each saved notification is written with a sequence number,
+ * and each notification polled is recorded by a line consuming its number,
+ * so that a replay interrupted by process death does not deliver the same notifications again.
+ */
+class SavedNotificationsBuffer {
+
+    private static final String TAG = "WonderPush";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String CONSUMED = "consumed";
+
+    enum OverflowPolicy {
+        /** Drop the oldest saved notification. */
+        DROP_OLDEST,
+        /** Drop the oldest saved notification of the same campaign, or the oldest one if there is none. */
+        COALESCE_BY_CAMPAIGN;
+
+        static OverflowPolicy parse(String value) {
+            if ("coalesceByCampaign".equals(value)) return COALESCE_BY_CAMPAIGN;
+            return DROP_OLDEST;
+        }
+    }
+
+    static class SavedNotification {
+        final boolean opened;
+        final JSONObject notification;
+        final int buttonIndex;
+        // Identifies the notification in the journal, assigned when saved
+        long seq = -1;
+
+        SavedNotification(boolean opened, JSONObject notification, int buttonIndex) {
+            this.opened = opened;
+            this.notification = notification;
+            this.buttonIndex = buttonIndex;
+        }
+
+        String getCampaignId() {
+            JSONObject wpData = JSONUtil.optWonderPushData(notification);
+            // The campaign id is abbreviated in the notification payload
+            return wpData == null ? null : JSONUtil.optString(wpData, "c");
+        }
+
+        JSONObject toJSON() throws JSONException {
+            JSONObject rtn = new JSONObject();
+            rtn.put("opened", opened);
+            rtn.put("notification", notification);
+            rtn.put("buttonIndex", buttonIndex);
+            rtn.put("seq", seq);
+            return rtn;
+        }
+
+        static SavedNotification fromJSON(JSONObject json) {
+            JSONObject notification = json.optJSONObject("notification");
+            if (notification == null) return null;
+            SavedNotification rtn = new SavedNotification(json.optBoolean("opened"), notification, json.optInt("buttonIndex", -1));
+            rtn.seq = json.optLong("seq", -1);
+            return rtn;
+        }
+    }
+
+    private final ConcurrentLinkedQueue<SavedNotification> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final AtomicLong nextSeq = new AtomicLong();
+    private volatile int capacity;
+    private volatile OverflowPolicy overflowPolicy;
+    // The journal is only touched under journalLock, which is never taken when journaling is disabled
+    private final Object journalLock = new Object();
+    private volatile File journal;
+    private int journalLines;
+
+    SavedNotificationsBuffer(int capacity, OverflowPolicy overflowPolicy) {
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    void configure(int capacity, OverflowPolicy overflowPolicy) {
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = overflowPolicy;
+        while (size.get() > this.capacity) {
+            evictFor(null);
+        }
+    }
+
+    /**
+     * Starts journaling to the given file, after loading the notifications it contains that were not consumed.
+     * Loaded notifications are placed before the ones saved so far.
+     */
+    void setJournal(File journal) {
+        if (journal == null) return;
+        synchronized (journalLock) {
+            if (journal.equals(this.journal)) return;
+            List<SavedNotification> saved = new ArrayList<>();
+            SavedNotification item;
+            while ((item = pollFromBuffer()) != null) {
+                saved.add(item);
+            }
+            if (journal.exists()) {
+                List<SavedNotification> loaded = new ArrayList<>();
+                Set<Long> consumed = new HashSet<>();
+                BufferedReader reader = null;
+                try {
+                    reader = new BufferedReader(new InputStreamReader(new FileInputStream(journal), UTF8));
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.isEmpty()) continue;
+                        try {
+                            JSONObject json = new JSONObject(line);
+                            if (json.has(CONSUMED)) {
+                                consumed.add(json.getLong(CONSUMED));
+                                continue;
+                            }
+                            item = SavedNotification.fromJSON(json);
+                            if (item != null) loaded.add(item);
+                        } catch (JSONException ex) {
+                            Log.w(TAG, "Skipping unreadable saved notification", ex);
+                        }
+                    }
+                } catch (IOException ex) {
+                    Log.e(TAG, "Could not read saved notifications journal " + journal, ex);
+                } finally {
+                    closeQuietly(reader);
+                }
+                for (SavedNotification loadedItem : loaded) {
+                    if (consumed.contains(loadedItem.seq)) continue;
+                    // Numbered again, as numbers restart with the process
+                    loadedItem.seq = nextSeq.getAndIncrement();
+                    addToBuffer(loadedItem);
+                }
+            }
+            for (SavedNotification savedItem : saved) {
+                addToBuffer(savedItem);
+            }
+            this.journal = journal;
+            rewriteJournal();
+        }
+    }
+
+    void add(SavedNotification item) {
+        item.seq = nextSeq.getAndIncrement();
+        addToBuffer(item);
+        if (journal == null) return;
+        synchronized (journalLock) {
+            if (journalLines >= 2 * capacity) {
+                // Forget about evicted and consumed notifications
+                rewriteJournal();
+            } else {
+                appendToJournal(item);
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the oldest saved notification, or {@code null} if there is none.
+     * The journal records it as consumed, and is deleted once everything has been consumed.
+     */
+    SavedNotification poll() {
+        SavedNotification rtn = pollFromBuffer();
+        if (journal != null) {
+            synchronized (journalLock) {
+                if (rtn != null) {
+                    appendConsumedToJournal(rtn);
+                } else if (journalLines > 0 && buffer.isEmpty()) {
+                    if (!journal.delete() && journal.exists()) {
+                        Log.w(TAG, "Could not delete saved notifications journal " + journal);
+                    }
+                    journalLines = 0;
+                }
+            }
+        }
+        return rtn;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Returns how many notifications were dropped because the buffer was full.
+     */
+    int getDropped() {
+        return dropped.get();
+    }
+
+    private SavedNotification pollFromBuffer() {
+        SavedNotification rtn = buffer.poll();
+        if (rtn != null) {
+            size.decrementAndGet();
+        }
+        return rtn;
+    }
+
+    private void addToBuffer(SavedNotification item) {
+        buffer.offer(item);
+        if (size.incrementAndGet() > capacity) {
+            evictFor(item);
+        }
+    }
+
+    private void evictFor(SavedNotification item) {
+        dropped.incrementAndGet();
+        if (item != null && overflowPolicy == OverflowPolicy.COALESCE_BY_CAMPAIGN) {
+            String campaignId = item.getCampaignId();
+            if (campaignId != null) {
+                for (SavedNotification other : buffer) {
+                    if (other != item && other.opened == item.opened && campaignId.equals(other.getCampaignId())) {
+                        if (buffer.remove(other)) {
+                            size.decrementAndGet();
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+        pollFromBuffer();
+    }
+
+    private void appendToJournal(SavedNotification item) {
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(journal, true);
+            out.write((item.toJSON().toString() + "\n").getBytes(UTF8));
+            ++journalLines;
+        } catch (IOException | JSONException ex) {
+            Log.e(TAG, "Could not journal saved notification", ex);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private void appendConsumedToJournal(SavedNotification item) {
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(journal, true);
+            out.write(("{\"" + CONSUMED + "\":" + item.seq + "}\n").getBytes(UTF8));
+            ++journalLines;
+        } catch (IOException ex) {
+            Log.e(TAG, "Could not journal consumed saved notification", ex);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private void rewriteJournal() {
+        if (buffer.isEmpty()) {
+            journal.delete();
+            journalLines = 0;
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (SavedNotification item : buffer) {
+            try {
+                sb.append(item.toJSON().toString()).append('\n');
+            } catch (JSONException ex) {
+                Log.e(TAG, "Could not journal saved notification", ex);
+            }
+        }
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(journal, false);
+            out.write(sb.toString().getBytes(UTF8));
+            journalLines = size.get();
+        } catch (IOException ex) {
+            Log.e(TAG, "Could not rewrite saved notifications journal " + journal, ex);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+}
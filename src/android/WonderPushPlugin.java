@@ -4,32 +4,43 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.pm.PackageManager;
 import android.location.Location;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import android.util.Log;
-import android.util.Pair;
+import android.util.LongSparseArray;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.cordova.CordovaPlugin;
 import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaWebView;
 import org.apache.cordova.PluginResult;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 import com.wonderpush.sdk.DeepLinkEvent;
 import com.wonderpush.sdk.WonderPush;
@@ -38,50 +49,417 @@ import com.wonderpush.sdk.WonderPushChannelGroup;
 import com.wonderpush.sdk.WonderPushDelegate;
 import com.wonderpush.sdk.WonderPushUserPreferences;
 
+import com.wonderpush.sdk.cordova.ActionArgs.Schema;
 import com.wonderpush.sdk.cordova.JSONUtil;
 
+import static com.wonderpush.sdk.cordova.ActionArgs.Type.*;
+import static com.wonderpush.sdk.cordova.ActionArgs.optional;
+import static com.wonderpush.sdk.cordova.ActionArgs.required;
+
 public class WonderPushPlugin extends CordovaPlugin implements Delegate.SubDelegate {
 
     static final String TAG = "WonderPush";
 
-    private CallbackContext jsEventForwarder;
+    /**
+     * Where an action is executed.
+     */
+    enum Threading {
+        /** On the calling Cordova thread, for cheap calls independent of installation state. */
+        INLINE,
+        /** On the Cordova thread pool, for blocking calls that need no ordering. */
+        POOL,
+        /** On the single writer thread, in call order, for calls reading or mutating installation state. */
+        SERIAL,
+    }
+
+    /**
+     * A JavaScript callable action, registered by name once at initialization.
+     * Its arguments are validated against its {@link Schema} before it is executed.
+     */
+    abstract static class Action {
+        final String name;
+        final Threading threading;
+        final Schema schema;
+
+        Action(String name) {
+            this(name, Threading.INLINE, Schema.NONE);
+        }
+
+        Action(String name, Threading threading) {
+            this(name, threading, Schema.NONE);
+        }
+
+        Action(String name, Schema schema) {
+            this(name, Threading.INLINE, schema);
+        }
+
+        Action(String name, Threading threading, Schema schema) {
+            this.name = name;
+            this.threading = threading;
+            this.schema = schema;
+        }
+
+        /**
+         * Whether this action only mutates installation properties, and can be coalesced by {@link PropertiesCoalescer}.
+         */
+        boolean isPropertiesMutation() {
+            return false;
+        }
+
+        /**
+         * Whether pending property mutations must be applied before this action, to keep them ordered with it.
+         * By default, all {@link Threading#SERIAL} actions but property mutations do.
+         */
+        boolean flushesPendingProperties() {
+            return threading == Threading.SERIAL && !isPropertiesMutation();
+        }
+
+        /**
+         * Whether this action can be part of a {@code __batch} call.
+         * Actions that keep their callback for later results cannot.
+         */
+        boolean isBatchable() {
+            return true;
+        }
+
+        /**
+         * Whether this action can wait in the {@link Outbox} until the SDK is initialized and has the user consent.
+         * Such actions must be {@link Threading#SERIAL}.
+         */
+        boolean isOutboxable() {
+            return isPropertiesMutation();
+        }
+
+        /**
+         * Whether this action may change installation state, and invalidates the {@link InstallationCache}.
+         * By default, all {@link Threading#SERIAL} actions do, including {@code initialize} which may switch installation.
+         */
+        boolean mutatesInstallation() {
+            return threading == Threading.SERIAL;
+        }
+
+        abstract void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException;
+    }
+
+    /**
+     * A {@link Threading#SERIAL} action reading installation state, so that it sees the effects of the calls made before it.
+     */
+    abstract static class ReadAction extends Action {
+        ReadAction(String name) {
+            this(name, Schema.NONE);
+        }
+
+        ReadAction(String name, Schema schema) {
+            super(name, Threading.SERIAL, schema);
+        }
+
+        @Override
+        boolean mutatesInstallation() {
+            return false;
+        }
+    }
+
+    /**
+     * A {@link ReadAction} whose results are served from the {@link InstallationCache} until the installation may have changed.
+     */
+    abstract class CachedReadAction extends ReadAction {
+        CachedReadAction(String name) {
+            this(name, Schema.NONE);
+        }
+
+        CachedReadAction(String name, Schema schema) {
+            super(name, schema);
+        }
 
-    private CallbackContext jsDelegate;
-    private Map<String, BlockingQueue<Object>> jsCallbackWaiters = new ConcurrentHashMap<>();
+        @Override
+        final void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+            String key = InstallationCache.key(name, args.toJSONArray());
+            PluginResult result = installationCache.get(key);
+            if (result == null) {
+                long version = installationCache.getVersion();
+                result = read(args);
+                installationCache.put(key, version, result);
+            }
+            callbackContext.sendPluginResult(result);
+        }
+
+        abstract PluginResult read(ActionArgs args) throws JSONException;
+    }
+
+    /**
+     * Forwards the results of a top-level action call, recording the size of their payload in {@link Metrics}.
+     */
+    static class MeasuredCallbackContext extends CallbackContext {
+        private final CallbackContext delegate;
+
+        MeasuredCallbackContext(CallbackContext delegate, CordovaWebView webView) {
+            super(delegate.getCallbackId(), webView);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void sendPluginResult(PluginResult pluginResult) {
+            switch (pluginResult.getMessageType()) {
+                case PluginResult.MESSAGE_TYPE_STRING:
+                case PluginResult.MESSAGE_TYPE_JSON:
+                case PluginResult.MESSAGE_TYPE_NUMBER:
+                case PluginResult.MESSAGE_TYPE_BOOLEAN:
+                    String message = pluginResult.getMessage();
+                    Metrics.recordPayload(message == null ? 0 : message.length());
+                    break;
+                default:
+                    break;
+            }
+            delegate.sendPluginResult(pluginResult);
+        }
+    }
+
+    /**
+     * Captures the first result of an action executed as part of a {@code __batch} call.
+     */
+    static class BatchedCallbackContext extends CallbackContext {
+        private PluginResult result;
+
+        BatchedCallbackContext(CordovaWebView webView) {
+            super("__batch", webView);
+        }
+
+        @Override
+        public void sendPluginResult(PluginResult pluginResult) {
+            if (result == null) {
+                result = pluginResult;
+            }
+        }
+
+        PluginResult getResult() {
+            return result;
+        }
+    }
+
+    /**
+     * Collects the results of the calls of a {@code __batch} call, which may complete on different threads,
+     * and answers it once they all did.
+     */
+    static class BatchResults {
+        private final JSONArray results = new JSONArray();
+        private final AtomicInteger remaining;
+        private final CallbackContext callbackContext;
+
+        BatchResults(int count, CallbackContext callbackContext) {
+            this.remaining = new AtomicInteger(count);
+            this.callbackContext = callbackContext;
+            if (count == 0) {
+                callbackContext.success(results);
+            }
+        }
+
+        void set(int index, JSONObject result) {
+            synchronized (results) {
+                try {
+                    results.put(index, result);
+                } catch (JSONException ex) {
+                    Log.e(TAG, "Unexpected JSONException while collecting batched results", ex);
+                }
+            }
+            if (remaining.decrementAndGet() == 0) {
+                synchronized (results) {
+                    callbackContext.success(results);
+                }
+            }
+        }
+    }
+
+    private static final int SERIAL_EXECUTOR_QUEUE_CAPACITY = 1000;
+
+    /**
+     * Executes {@link Threading#SERIAL} actions one after the other.
+     * Shared by all plugin instances, as they all act on the same installation.
+     * Its queue is unbounded so that enqueuing never blocks, be it from the main thread or from the executor itself,
+     * the actions called from JavaScript being bounded by {@link #pendingSerialActions} instead.
+     */
+    private static final ThreadPoolExecutor serialExecutor = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    return new Thread(runnable, "WonderPush-Cordova");
+                }
+            });
+
+    // Actions called from JavaScript waiting for or running on the serial executor
+    private static final AtomicInteger pendingSerialActions = new AtomicInteger();
+
+    private final Map<String, Action> actions = new HashMap<>();
+    private boolean firstExecuteRecorded;
+    private final NotificationBundleConverter notificationBundleConverter = new NotificationBundleConverter();
+    private final InstallationCache installationCache = new InstallationCache();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Only used from the serial executor
+    private final PropertiesCoalescer propertiesCoalescer = new PropertiesCoalescer();
+    private boolean propertiesFlushScheduled;
+    private final Runnable flushPropertiesRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flushProperties();
+        }
+    };
+    private final Runnable scheduledFlushPropertiesRunnable = new Runnable() {
+        @Override
+        public void run() {
+            serialExecutor.execute(flushPropertiesRunnable);
+        }
+    };
+    private final EventAggregator eventAggregator = new EventAggregator();
+    // Shared by all plugin instances, as they all use the same preferences
+    private static ChannelFingerprints channelFingerprints;
+    private final GeolocationFilter geolocationFilter = new GeolocationFilter();
+    // Lazily loaded, null when disabled. Shared by all plugin instances, as they all use the same file.
+    private static Outbox outbox;
+    private static boolean outboxSyncScheduled;
+    // Only used from the serial executor, like the outbox
+    private static boolean replayingOutbox;
+    private static Boolean requiresUserConsent;
+    private final Runnable replayOutboxRunnable = new Runnable() {
+        @Override
+        public void run() {
+            replayOutbox();
+        }
+    };
+    private static final Runnable syncOutboxRunnable = new Runnable() {
+        @Override
+        public void run() {
+            outboxSyncScheduled = false;
+            if (outbox != null) outbox.sync();
+        }
+    };
+    private static final Runnable scheduledSyncOutboxRunnable = new Runnable() {
+        @Override
+        public void run() {
+            serialExecutor.execute(syncOutboxRunnable);
+        }
+    };
+    private final Runnable flushAggregatedEventsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            eventAggregator.flushAll();
+        }
+    };
+
+    private volatile CallbackContext jsEventForwarder;
+    private BroadcastReceiver notificationOpenReceiver;
+    private BroadcastReceiver registeredCallbackReceiver;
+    private BroadcastReceiver installationChangedReceiver;
+    private EventChannel eventChannel;
+    private DedupFilter dedupFilter;
+    private boolean outboxEnabled;
+    private int outboxCapacity;
+
+    private static final int DEFAULT_URL_FOR_DEEP_LINK_TIMEOUT_MS = 3000;
+    private static final String OUTBOX_FILENAME = "wonderpush-cordova-outbox.jsonl";
+    private static final int OUTBOX_SYNC_DELAY_MS = 250;
+    private static final String INTENT_INSTALLATION_CHANGED = "com.wonderpush.sdk.cordova.INSTALLATION_CHANGED";
+    private static final String BUILD_CONFIG_REQUIRES_USER_CONSENT = "WONDERPUSH_REQUIRES_USER_CONSENT";
+    private static final String METADATA_REQUIRES_USER_CONSENT = "com.wonderpush.sdk.requiresUserConsent";
+
+    /**
+     * A pending JavaScript callback, completed by {@link #jsCalledBack(long, Object)}.
+     */
+    static class JsCallbackWaiter {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile Object value;
+
+        synchronized boolean complete(Object value) {
+            if (latch.getCount() == 0) {
+                return false;
+            }
+            this.value = value;
+            latch.countDown();
+            return true;
+        }
+
+        /**
+         * @return The value given by JavaScript, {@link JSONObject#NULL} for {@code null},
+         *         or {@code null} if JavaScript did not answer in time.
+         */
+        Object await(long timeout, TimeUnit unit) throws InterruptedException {
+            return latch.await(timeout, unit) ? value : null;
+        }
+    }
+
+    private volatile CallbackContext jsDelegate;
+    private volatile boolean jsDelegateHasUrlForDeepLink;
+    private int urlForDeepLinkTimeoutMs = DEFAULT_URL_FOR_DEEP_LINK_TIMEOUT_MS;
+    private final AtomicLong nextJsCallbackId = new AtomicLong();
+    private final LongSparseArray<JsCallbackWaiter> jsCallbackWaiters = new LongSparseArray<>();
 
     @Override
     protected void pluginInitialize() {
+        long start = System.nanoTime();
         WonderPush.setIntegrator("wonderpush-cordova-sdk-3.5.2");
 
+        urlForDeepLinkTimeoutMs = preferences.getInteger("WONDERPUSH_URL_FOR_DEEP_LINK_TIMEOUT", DEFAULT_URL_FOR_DEEP_LINK_TIMEOUT_MS);
+        eventChannel = new EventChannel(
+                preferences.getInteger("WONDERPUSH_EVENTS_QUEUE_CAPACITY", EventChannel.DEFAULT_CAPACITY),
+                preferences.getInteger("WONDERPUSH_EVENTS_BATCH_SIZE", EventChannel.DEFAULT_BATCH_SIZE),
+                preferences.getInteger("WONDERPUSH_EVENTS_FLUSH_DELAY", EventChannel.DEFAULT_FLUSH_DELAY_MS),
+                EventChannel.OverflowPolicy.parse(preferences.getString("WONDERPUSH_EVENTS_OVERFLOW", "coalesce")),
+                preferences.getInteger("WONDERPUSH_EVENTS_LOW_PRIORITY_RATE", EventChannel.DEFAULT_LOW_PRIORITY_RATE));
+        installationCache.setTtlMs(preferences.getInteger("WONDERPUSH_INSTALLATION_CACHE_TTL", InstallationCache.DEFAULT_TTL_MS));
+        dedupFilter = new DedupFilter(preferences.getInteger("WONDERPUSH_DEDUP_WINDOW", DedupFilter.DEFAULT_WINDOW_MS));
+        outboxEnabled = preferences.getBoolean("WONDERPUSH_OUTBOX", false);
+        outboxCapacity = preferences.getInteger("WONDERPUSH_OUTBOX_CAPACITY", Outbox.DEFAULT_CAPACITY);
+
+        registerActions();
+        if (outboxEnabled) {
+            // Loads what was left by the previous launch, off the startup path
+            serialExecutor.execute(replayOutboxRunnable);
+        }
+
+        // Broadcast receivers are registered by __setEventForwarder and the sub delegate is set by setDelegate,
+        // keeping them off the startup path
+        Metrics.recordPluginInitialize(System.nanoTime() - start);
+    }
+
+    /**
+     * Identifies a registered callback by the notification it comes from, its method and its argument.
+     * @return {@code null} if the intent does not tell the notification, so that the callback is never filtered,
+     *         as the same method and argument may come from different notifications.
+     */
+    private String registeredCallbackKey(Intent intent, String method, String arg) {
+        Intent pushNotif = intent.getParcelableExtra(WonderPush.INTENT_NOTIFICATION_WILL_OPEN_EXTRA_RECEIVED_PUSH_NOTIFICATION);
+        Bundle extras = pushNotif != null ? pushNotif.getExtras() : intent.getExtras();
+        if (extras == null || extras.isEmpty()) return null;
+        String notificationKey = EventChannel.notificationKey("registeredCallback", notificationBundleConverter.convert(extras));
+        return notificationKey == null ? null : notificationKey + ":" + method + ":" + arg;
+    }
+
+    /**
+     * Starts forwarding notification clicks and registered callbacks, once JavaScript listens to them.
+     */
+    private synchronized void registerReceivers() {
+        if (notificationOpenReceiver != null) return;
+        LocalBroadcastManager localBroadcastManager = LocalBroadcastManager.getInstance(cordova.getContext());
+
         // Forward notification clicks and data notifications receipt
-        LocalBroadcastManager.getInstance(cordova.getContext()).registerReceiver(new BroadcastReceiver() {
+        notificationOpenReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                if (jsEventForwarder == null) return;
+                CallbackContext forwarder = jsEventForwarder;
+                if (forwarder == null) return;
 
                 Intent pushNotif = intent.getParcelableExtra(WonderPush.INTENT_NOTIFICATION_WILL_OPEN_EXTRA_RECEIVED_PUSH_NOTIFICATION);
                 Bundle extras = pushNotif == null ? null : pushNotif.getExtras();
                 if (extras == null || extras.isEmpty()) {
                     return;
                 }
-                JSONObject notification = new JSONObject();
-                for (String key : extras.keySet()) {
-                    try {
-                        Object value = extras.get(key);
-                        if (value instanceof String) {
-                            String valueStr = (String) value;
-                            if (valueStr.charAt(0) == '{' && valueStr.charAt(valueStr.length() - 1) == '}') {
-                                try {
-                                    value = new JSONObject(valueStr);
-                                } catch (JSONException ex) {
-                                    Log.d("WonderPush", "Tried to parse a seemingly JSON value for notification field " + key + " with value " + valueStr, ex);
-                                }
-                            }
-                        }
-                        notification.putOpt(key, JSONUtil.wrap(value));
-                    } catch (JSONException ex) {
-                        Log.e("WonderPush", "Unexpected error while transforming received notification intent to JSON for property " + key + " of value " + extras.get(key), ex);
-                    }
+                // Notification actions may have changed the installation
+                installationCache.invalidate();
+                JSONObject notification = notificationBundleConverter.convert(extras);
+                String key = EventChannel.notificationKey("notificationOpen", notification);
+                if (dedupFilter.isDuplicate(key, SystemClock.elapsedRealtime())) {
+                    return;
                 }
 
                 JSONObject event = new JSONObject();
@@ -94,24 +472,28 @@ public class WonderPushPlugin extends CordovaPlugin implements Delegate.SubDeleg
                     return;
                 }
 
-                PluginResult result = new PluginResult(PluginResult.Status.OK, event);
-                result.setKeepCallback(true);
-                jsEventForwarder.sendPluginResult(result);
+                eventChannel.send(forwarder, event, key, EventChannel.Priority.HIGH);
             }
-        }, new IntentFilter(WonderPush.INTENT_NOTIFICATION_WILL_OPEN));
+        };
+        localBroadcastManager.registerReceiver(notificationOpenReceiver, new IntentFilter(WonderPush.INTENT_NOTIFICATION_WILL_OPEN));
 
         // Forward registered callbacks
         IntentFilter registeredMethodIntentFilter = new IntentFilter();
         registeredMethodIntentFilter.addAction(WonderPush.INTENT_NOTIFICATION_BUTTON_ACTION_METHOD_ACTION);
         registeredMethodIntentFilter.addDataScheme(WonderPush.INTENT_NOTIFICATION_BUTTON_ACTION_METHOD_SCHEME);
         registeredMethodIntentFilter.addDataAuthority(WonderPush.INTENT_NOTIFICATION_BUTTON_ACTION_METHOD_AUTHORITY, null);
-        LocalBroadcastManager.getInstance(cordova.getContext()).registerReceiver(new BroadcastReceiver() {
+        registeredCallbackReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                if (jsEventForwarder == null) return;
+                CallbackContext forwarder = jsEventForwarder;
+                if (forwarder == null) return;
 
                 String method = intent.getStringExtra(WonderPush.INTENT_NOTIFICATION_BUTTON_ACTION_METHOD_EXTRA_METHOD);
                 String arg = intent.getStringExtra(WonderPush.INTENT_NOTIFICATION_BUTTON_ACTION_METHOD_EXTRA_ARG);
+                String key = registeredCallbackKey(intent, method, arg);
+                if (dedupFilter.isDuplicate(key, SystemClock.elapsedRealtime())) {
+                    return;
+                }
 
                 JSONObject event = new JSONObject();
                 try {
@@ -123,421 +505,1300 @@ public class WonderPushPlugin extends CordovaPlugin implements Delegate.SubDeleg
                     return;
                 }
 
-                PluginResult result = new PluginResult(PluginResult.Status.OK, event);
-                result.setKeepCallback(true);
-                jsEventForwarder.sendPluginResult(result);
+                eventChannel.send(forwarder, event, key, EventChannel.Priority.HIGH);
             }
-        }, registeredMethodIntentFilter);
+        };
+        localBroadcastManager.registerReceiver(registeredCallbackReceiver, registeredMethodIntentFilter);
 
-        Delegate.setSubDelegate(this);
+        // Forward installation changes made natively, like by replaying the outbox, to every plugin instance
+        installationChangedReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                installationCache.invalidate();
+                CallbackContext forwarder = jsEventForwarder;
+                if (forwarder == null) return;
+
+                JSONObject event = new JSONObject();
+                try {
+                    event.put("type", "installationChanged");
+                } catch (JSONException ex) {
+                    Log.e("WonderPush", "Unexpected error while creating installationChanged event", ex);
+                    return;
+                }
+
+                eventChannel.send(forwarder, event, null, EventChannel.Priority.HIGH);
+            }
+        };
+        localBroadcastManager.registerReceiver(installationChangedReceiver, new IntentFilter(INTENT_INSTALLATION_CHANGED));
+    }
+
+    private synchronized void unregisterReceivers() {
+        if (notificationOpenReceiver == null) return;
+        LocalBroadcastManager localBroadcastManager = LocalBroadcastManager.getInstance(cordova.getContext());
+        localBroadcastManager.unregisterReceiver(notificationOpenReceiver);
+        localBroadcastManager.unregisterReceiver(registeredCallbackReceiver);
+        localBroadcastManager.unregisterReceiver(installationChangedReceiver);
+        notificationOpenReceiver = null;
+        registeredCallbackReceiver = null;
+        installationChangedReceiver = null;
     }
 
     @Override
-    public boolean execute(String action, JSONArray args, CallbackContext callbackContext) throws JSONException {
-        // Internal
-        if (action.equals("__callback")) {
+    public boolean execute(String action, JSONArray rawArgs, CallbackContext callbackContext) throws JSONException {
+        Action handler = actions.get(action);
+        if (handler == null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        ActionArgs args = new ActionArgs(rawArgs);
+        callbackContext = new MeasuredCallbackContext(callbackContext, webView);
+        switch (handler.threading) {
+            case POOL:
+                cordova.getThreadPool().execute(newActionRunnable(handler, args, callbackContext));
+                break;
+            case SERIAL:
+                if (pendingSerialActions.incrementAndGet() > SERIAL_EXECUTOR_QUEUE_CAPACITY) {
+                    pendingSerialActions.decrementAndGet();
+                    Log.e(TAG, "Too many pending actions, rejecting " + action);
+                    Metrics.recordAction(action, 0, true);
+                    callbackContext.error("Too many pending actions, rejecting " + action);
+                    break;
+                }
+                serialExecutor.execute(newActionRunnable(handler, args, callbackContext));
+                break;
+            case INLINE:
+            default:
+                invoke(handler, args, callbackContext);
+                break;
+        }
+        if (!firstExecuteRecorded) {
+            firstExecuteRecorded = true;
+            Metrics.recordFirstExecute(action, start, System.nanoTime() - start);
+        }
+        return true;
+    }
 
-            String callbackId = args.getString(0);
-            Object value = args.get(1);
-            jsCalledBack(callbackId, value);
+    @Override
+    public void onResume(boolean multitasking) {
+        super.onResume(multitasking);
+        // The installation may have changed while in background
+        installationCache.invalidate();
+        if (outboxEnabled) {
+            serialExecutor.execute(replayOutboxRunnable);
+        }
+    }
 
-        } else if (action.equals("__setEventForwarder")) {
+    @Override
+    public void onPause(boolean multitasking) {
+        super.onPause(multitasking);
+        serialExecutor.execute(flushPropertiesRunnable);
+        serialExecutor.execute(flushAggregatedEventsRunnable);
+        serialExecutor.execute(syncOutboxRunnable);
+    }
 
-            jsEventForwarder = callbackContext;
-            PluginResult result = new PluginResult(PluginResult.Status.OK, (String) null);
-            result.setKeepCallback(true);
-            callbackContext.sendPluginResult(result);
+    @Override
+    public void onDestroy() {
+        unregisterReceivers();
+        Delegate.removeSubDelegate(this);
+        serialExecutor.execute(flushPropertiesRunnable);
+        serialExecutor.execute(flushAggregatedEventsRunnable);
+        serialExecutor.execute(syncOutboxRunnable);
+        super.onDestroy();
+    }
 
-        // Initialization
-        } else if (action.equals("initialize")) {
+    /**
+     * Runs an action on the current thread.
+     */
+    private void invoke(Action handler, ActionArgs args, CallbackContext callbackContext) throws JSONException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            failed = !invokeHandler(handler, args, callbackContext);
+        } finally {
+            Metrics.recordAction(handler.name, System.nanoTime() - start, failed);
+        }
+    }
 
-            String clientId = args.getString(0);
-            String clientSecret = args.getString(1);
-            WonderPush.initialize(cordova.getContext(), clientId, clientSecret);
-            callbackContext.success();
+    /**
+     * @return {@code false} if the arguments were invalid, and the action was not executed.
+     */
+    private boolean invokeHandler(Action handler, ActionArgs args, CallbackContext callbackContext) throws JSONException {
+        JSONObject error = handler.schema.validate(handler.name, args);
+        if (error != null) {
+            Log.e(TAG, error.getString("message"));
+            callbackContext.error(error);
+            return false;
+        }
+        if (outboxEnabled && handler.isOutboxable()) {
+            if (!isSdkReady()) {
+                getOutbox().add(handler.name, args.toJSONArray());
+                scheduleOutboxSync();
+                callbackContext.success();
+                return true;
+            }
+            // Keep what was called before first
+            replayOutbox();
+        }
+        if (handler.flushesPendingProperties() && propertiesCoalescer.hasPending()) {
+            // Keep pending property mutations ordered with what follows
+            flushProperties();
+        }
+        if (handler.mutatesInstallation()) {
+            installationCache.invalidate();
+        }
+        handler.execute(args, callbackContext);
+        return true;
+    }
 
-        } else if (action.equals("initializeAndRememberCredentials")) {
+    /**
+     * Wraps an action to run it off the calling thread, reporting failures to JavaScript.
+     */
+    private Runnable newActionRunnable(final Action handler, final ActionArgs args, final CallbackContext callbackContext) {
+        final long enqueuedAt = System.nanoTime();
+        return new Runnable() {
+            @Override
+            public void run() {
+                Metrics.recordQueueWait(handler.threading, System.nanoTime() - enqueuedAt);
+                try {
+                    invoke(handler, args, callbackContext);
+                } catch (JSONException ex) {
+                    Log.e(TAG, "Unexpected JSONException while executing action " + handler.name, ex);
+                    callbackContext.error(ex.getMessage());
+                } catch (RuntimeException ex) {
+                    Log.e(TAG, "Unexpected error while executing action " + handler.name, ex);
+                    callbackContext.error(ex.getMessage());
+                } finally {
+                    if (handler.threading == Threading.SERIAL) {
+                        pendingSerialActions.decrementAndGet();
+                    }
+                }
+            }
+        };
+    }
 
-            String clientId = args.getString(0);
-            String clientSecret = args.getString(1);
-            WonderPush.initializeAndRememberCredentials(cordova.getContext(), clientId, clientSecret);
-            callbackContext.success();
+    /**
+     * One {@code {action, args}} entry of a {@code __batch} call, run on the thread its action asks for.
+     */
+    private class BatchedCall implements Runnable {
+        final Action handler;
+        private final ActionArgs args;
+        private final BatchResults results;
+        private final int index;
+        private final long enqueuedAt = System.nanoTime();
+
+        BatchedCall(Action handler, ActionArgs args, BatchResults results, int index) {
+            this.handler = handler;
+            this.args = args;
+            this.results = results;
+            this.index = index;
+        }
 
-        } else if (action.equals("getRememberedClientId")) {
+        @Override
+        public void run() {
+            if (handler.threading != Threading.INLINE) {
+                Metrics.recordQueueWait(handler.threading, System.nanoTime() - enqueuedAt);
+            }
+            JSONObject result;
+            try {
+                result = execute();
+            } catch (JSONException ex) {
+                Log.e(TAG, "Unexpected JSONException while executing batched action " + handler.name, ex);
+                result = batchedCallError(ex.getMessage());
+            } catch (RuntimeException ex) {
+                // Keep executing the other calls, some of them may already be applied
+                Log.e(TAG, "Unexpected error while executing batched action " + handler.name, ex);
+                result = batchedCallError(ex.getMessage());
+            }
+            results.set(index, result);
+        }
 
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getRememberedClientId(cordova.getContext())));
+        void reject(String error) {
+            Metrics.recordAction(handler.name, 0, true);
+            results.set(index, batchedCallError(error));
+        }
 
-        } else if (action.equals("isInitialized")) {
+        /**
+         * @return An object holding either {@code ok: true} and the {@code value} returned by the action,
+         *         or {@code ok: false} and the {@code error}.
+         */
+        private JSONObject execute() throws JSONException {
+            BatchedCallbackContext callbackContext = new BatchedCallbackContext(webView);
+            invoke(handler, args, callbackContext);
+            PluginResult result = callbackContext.getResult();
+            Object value = batchedResultValue(result);
+            JSONObject rtn = new JSONObject();
+            if (result == null || result.getStatus() == PluginResult.Status.OK.ordinal()) {
+                rtn.put("ok", true);
+                rtn.put("value", value);
+            } else {
+                rtn.put("ok", false);
+                rtn.put("error", value);
+            }
+            return rtn;
+        }
+    }
 
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.isInitialized()));
+    private static JSONObject batchedCallError(Object error) {
+        JSONObject rtn = new JSONObject();
+        try {
+            rtn.put("ok", false);
+            rtn.put("error", error);
+        } catch (JSONException ex) {
+            Log.e(TAG, "Unexpected JSONException while reporting a batched call error", ex);
+        }
+        return rtn;
+    }
 
-        } else if (action.equals("setUserId")) {
+    /**
+     * Returns the message of a result as JavaScript would receive it from a call of its own.
+     */
+    static Object batchedResultValue(PluginResult result) throws JSONException {
+        if (result == null) return JSONObject.NULL;
+        switch (result.getMessageType()) {
+            case PluginResult.MESSAGE_TYPE_NULL:
+                return JSONObject.NULL;
+            case PluginResult.MESSAGE_TYPE_STRING:
+                return result.getStrMessage();
+            case PluginResult.MESSAGE_TYPE_JSON:
+            case PluginResult.MESSAGE_TYPE_NUMBER:
+            case PluginResult.MESSAGE_TYPE_BOOLEAN:
+                return new JSONTokener(result.getMessage()).nextValue();
+            default:
+                // Binary and multipart results cannot be represented in the batch results
+                Log.w(TAG, "Unsupported result type " + result.getMessageType() + " in batch");
+                return JSONObject.NULL;
+        }
+    }
 
-            String userId = args.isNull(0) ? null : args.getString(0);
-            WonderPush.setUserId(userId);
-            callbackContext.success();
+    private void register(Action action) {
+        actions.put(action.name, action);
+    }
 
-        } else if (action.equals("setLogging")) {
+    private void registerActions() {
+        // Internal
+        register(new Action("__callback", Schema.of(required(NUMBER), required(ANY))) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                long callbackId = args.getLong(0);
+                Object value = args.get(1);
+                jsCalledBack(callbackId, value);
+            }
 
-            boolean enabled = args.getBoolean(0);
-            WonderPush.setLogging(enabled);
-            callbackContext.success();
+            @Override
+            boolean isBatchable() {
+                // Answers a waiting native thread, must not wait behind other calls
+                return false;
+            }
+        });
+        register(new Action("__setEventForwarder", Threading.SERIAL) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                jsEventForwarder = callbackContext;
+                registerReceivers();
+                PluginResult result = new PluginResult(PluginResult.Status.OK, (String) null);
+                result.setKeepCallback(true);
+                callbackContext.sendPluginResult(result);
+            }
 
-        } else if (action.equals("setDelegate")) {
+            @Override
+            boolean isBatchable() {
+                return false;
+            }
 
-            boolean enabled = args.getBoolean(0);
-            jsDelegate = enabled ? callbackContext : null;
-            PluginResult result = new PluginResult(PluginResult.Status.OK);
-            result.setKeepCallback(true);
-            callbackContext.sendPluginResult(result);
-            if (enabled) {
-                List<JSONObject> receivedNotifications = Delegate.consumeSavedReceivedNotifications();
-                List<Pair<JSONObject, Integer>> openedNotifications = Delegate.consumeSavedOpenedNotifications();
-                for (JSONObject notif : receivedNotifications) {
-                    onNotificationReceived(notif);
+            @Override
+            boolean mutatesInstallation() {
+                return false;
+            }
+        });
+        register(new Action("__batch", Schema.of(ARRAY)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                // Each call runs according to its own threading, the serial ones in order, as if called one by one
+                JSONArray calls = args.getJSONArray(0);
+                BatchResults results = new BatchResults(calls.length(), callbackContext);
+                final List<BatchedCall> serialCalls = new ArrayList<>();
+                for (int i = 0, e = calls.length(); i < e; ++i) {
+                    JSONObject call = calls.optJSONObject(i);
+                    String name = call == null ? null : JSONUtil.optString(call, "action");
+                    Action handler = name == null ? null : actions.get(name);
+                    if (handler == null || !handler.isBatchable()) {
+                        results.set(i, batchedCallError("Invalid action in batch: " + name));
+                        continue;
+                    }
+                    BatchedCall batchedCall = new BatchedCall(handler, new ActionArgs(call.optJSONArray("args")), results, i);
+                    switch (handler.threading) {
+                        case POOL:
+                            cordova.getThreadPool().execute(batchedCall);
+                            break;
+                        case SERIAL:
+                            serialCalls.add(batchedCall);
+                            break;
+                        case INLINE:
+                        default:
+                            batchedCall.run();
+                            break;
+                    }
                 }
-                for (Pair<JSONObject, Integer> pair : openedNotifications) {
-                    onNotificationOpened(pair.first, pair.second);
+                if (serialCalls.isEmpty()) return;
+                if (pendingSerialActions.incrementAndGet() > SERIAL_EXECUTOR_QUEUE_CAPACITY) {
+                    pendingSerialActions.decrementAndGet();
+                    Log.e(TAG, "Too many pending actions, rejecting " + serialCalls.size() + " batched actions");
+                    for (BatchedCall batchedCall : serialCalls) {
+                        batchedCall.reject("Too many pending actions, rejecting " + batchedCall.handler.name);
+                    }
+                    return;
                 }
+                serialExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (BatchedCall batchedCall : serialCalls) {
+                                batchedCall.run();
+                            }
+                        } finally {
+                            pendingSerialActions.decrementAndGet();
+                        }
+                    }
+                });
             }
 
-        // Core information
-        } else if (action.equals("getUserId")) {
-
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getUserId()));
-
-        } else if (action.equals("getInstallationId")) {
-
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getInstallationId()));
+            @Override
+            boolean flushesPendingProperties() {
+                // Each batched call applies its own rule
+                return false;
+            }
 
-        } else if (action.equals("getDeviceId")) {
+            @Override
+            boolean mutatesInstallation() {
+                // Each batched call applies its own rule
+                return false;
+            }
 
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getDeviceId()));
+            @Override
+            boolean isBatchable() {
+                return false;
+            }
+        });
 
-        } else if (action.equals("getPushToken")) {
+        // Initialization
+        register(new Action("initialize", Threading.SERIAL, Schema.of(STRING, STRING)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                String clientId = args.getString(0);
+                String clientSecret = args.getString(1);
+                WonderPush.initialize(cordova.getContext(), clientId, clientSecret);
+                replayOutbox();
+                callbackContext.success();
+            }
+        });
+        register(new Action("initializeAndRememberCredentials", Threading.SERIAL, Schema.of(optional(STRING), optional(STRING))) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                // A null credential is forgotten
+                String clientId = args.optString(0);
+                String clientSecret = args.optString(1);
+                WonderPush.initializeAndRememberCredentials(cordova.getContext(), clientId, clientSecret);
+                replayOutbox();
+                callbackContext.success();
+            }
+        });
+        register(new ReadAction("getRememberedClientId") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getRememberedClientId(cordova.getContext())));
+            }
+        });
+        register(new ReadAction("isInitialized") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.isInitialized()));
+            }
+        });
+        register(new Action("setUserId", Threading.SERIAL, Schema.of(optional(STRING))) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                // Aggregated events belong to the previous state
+                eventAggregator.flushAll();
+                String userId = args.optString(0);
+                WonderPush.setUserId(userId);
+                callbackContext.success();
+            }
+        });
+        register(new Action("setLogging", Schema.of(BOOLEAN)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                boolean enabled = args.getBoolean(0);
+                WonderPush.setLogging(enabled);
+                callbackContext.success();
+            }
+        });
+        register(new Action("setDelegate", Threading.SERIAL, Schema.of(required(BOOLEAN), optional(BOOLEAN))) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                boolean enabled = args.getBoolean(0);
+                // Older JavaScript does not tell, assume the delegate implements urlForDeepLink
+                jsDelegateHasUrlForDeepLink = enabled && args.optBoolean(1, true);
+                jsDelegate = enabled ? callbackContext : null;
+                if (enabled) {
+                    Delegate.addSubDelegate(WonderPushPlugin.this);
+                } else {
+                    Delegate.removeSubDelegate(WonderPushPlugin.this);
+                }
+                PluginResult result = new PluginResult(PluginResult.Status.OK);
+                result.setKeepCallback(true);
+                callbackContext.sendPluginResult(result);
+                if (enabled) {
+                    Delegate.replaySavedNotifications();
+                }
+            }
 
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getPushToken()));
+            @Override
+            boolean isBatchable() {
+                return false;
+            }
 
-        } else if (action.equals("getAccessToken")) {
+            @Override
+            boolean mutatesInstallation() {
+                return false;
+            }
+        });
 
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getAccessToken()));
+        // Core information
+        register(new ReadAction("getUserId") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getUserId()));
+            }
+        });
+        register(new ReadAction("getInstallationId") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getInstallationId()));
+            }
+        });
+        register(new ReadAction("getDeviceId") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getDeviceId()));
+            }
+        });
+        register(new ReadAction("getPushToken") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getPushToken()));
+            }
+        });
+        register(new ReadAction("getAccessToken") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getAccessToken()));
+            }
+        });
 
         // Installation data and events
-        } else if (action.equals("trackEvent")) {
-
-            String type = args.getString(0);
+        register(new Action("trackEvent", Threading.SERIAL, Schema.of(required(STRING), optional(OBJECT))) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                String type = args.getString(0);
 
-            if (args.length() == 2) {
-                JSONObject customData = args.getJSONObject(1);
-                WonderPush.trackEvent(type, customData);
-            } else {
-                WonderPush.trackEvent(type);
-            }
-            callbackContext.success();
-
-        } else if (action.equals("addTag") || action.equals("removeTag")) {
-
-            // This can be called with a single string or a single array of strings
-            String[] tags = null;
-            Object value = args.get(0); // can be a string or an array of strings
-            if (value instanceof JSONArray) {
-                JSONArray argTags = (JSONArray) value;
-                List<String> tagsList = new LinkedList<>();
-                for (int i = 0; i < argTags.length(); ++i) {
-                    Object v = argTags.get(i);
-                    if (v instanceof String) {
-                        tagsList.add((String) v);
+                if (eventAggregator.isAggregated(type)) {
+                    JSONObject customData = args.optJSONObject(1);
+                    if (eventAggregator.add(type, customData)) {
+                        scheduleAggregatedEventFlush(type);
                     }
-                }
-                tags = tagsList.toArray(new String[]{});
-            } else if (value instanceof String) {
-                tags = new String[]{(String) value};
-            }
-            if (tags != null) {
-                if (action.equals("addTag")) {
-                    WonderPush.addTag(tags);
                 } else {
-                    WonderPush.removeTag(tags);
+                    JSONObject customData = args.optJSONObject(1);
+                    if (customData != null) {
+                        WonderPush.trackEvent(type, customData);
+                    } else {
+                        WonderPush.trackEvent(type);
+                    }
                 }
+                callbackContext.success();
             }
-            callbackContext.success();
-
-        } else if (action.equals("removeAllTags")) {
-
-            WonderPush.removeAllTags();
-            callbackContext.success();
-
-        } else if (action.equals("getTags")) {
-
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, new JSONArray(WonderPush.getTags())));
-
-        } else if (action.equals("hasTag")) {
-
-            String tag = args.getString(0);
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.hasTag(tag)));
-
-        } else if (action.equals("setProperty")) {
-
-            String field = args.getString(0);
-            Object value = args.get(1);
-            WonderPush.setProperty(field, value);
-            callbackContext.success();
-
-        } else if (action.equals("unsetProperty")) {
-
-            String field = args.getString(0);
-            WonderPush.unsetProperty(field);
-            callbackContext.success();
-
-        } else if (action.equals("addProperty")) {
-
-            String field = args.getString(0);
-            Object value = args.get(1);
-            WonderPush.addProperty(field, value);
-            callbackContext.success();
-
-        } else if (action.equals("removeProperty")) {
-
-            String field = args.getString(0);
-            Object value = args.get(1);
-            WonderPush.removeProperty(field, value);
-            callbackContext.success();
-
-        } else if (action.equals("getPropertyValue")) {
-
-            String field = args.getString(0);
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, new JSONObject(Collections.singletonMap("__wrapped", WonderPush.getPropertyValue(field)))));
-
-        } else if (action.equals("getPropertyValues")) {
-
-            String field = args.getString(0);
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, new JSONArray(WonderPush.getPropertyValues(field))));
-
-        } else if (action.equals("getProperties")) {
-
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getProperties()));
-
-        } else if (action.equals("putProperties")) {
-
-            JSONObject properties = args.getJSONObject(0);
-            WonderPush.putProperties(properties);
-            callbackContext.success();
-
-        } else if (action.equals("getInstallationCustomProperties")) {
-
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getInstallationCustomProperties()));
-
-        } else if (action.equals("putInstallationCustomProperties")) {
-
-            JSONObject custom = args.getJSONObject(0);
-            WonderPush.putInstallationCustomProperties(custom);
-            callbackContext.success();
-
-        // Push notification handling
-        } else if (action.equals("subscribeToNotifications")) {
-
-            boolean fallbackToSettings = args.getBoolean(0);
-            WonderPush.subscribeToNotifications(fallbackToSettings);
-            callbackContext.success();
-
-        } else if (action.equals("isSubscribedToNotifications")) {
-
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.isSubscribedToNotifications()));
-
-        } else if (action.equals("unsubscribeFromNotifications")) {
-
-            WonderPush.unsubscribeFromNotifications();
-            callbackContext.success();
-
-        } else if (action.equals("getNotificationEnabled")) {
-
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getNotificationEnabled()));
-
-        } else if (action.equals("setNotificationEnabled")) {
-
-            boolean enabled = args.getBoolean(0);
-            WonderPush.setNotificationEnabled(enabled);
-            callbackContext.success();
-
-        // Geolocation
-        } else if (action.equals("enableGeolocation")) {
-
-            WonderPush.enableGeolocation();
-            callbackContext.success();
-
-        } else if (action.equals("disableGeolocation")) {
-
-            WonderPush.disableGeolocation();
-            callbackContext.success();
-
-        } else if (action.equals("setGeolocation")) {
-
-            double latitude = args.getDouble(0);
-            double longitude = args.getDouble(1);
-            Location location = new Location("");
-            location.setLatitude(latitude);
-            location.setLongitude(longitude);
-            WonderPush.setGeolocation(location);
-            callbackContext.success();
-
-        // Country, currency, locale, timeZone
-        } else if (action.equals("getCountry")) {
-
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getCountry()));
-
-        } else if (action.equals("setCountry")) {
-
-            WonderPush.setCountry(args.getString(0));
-            callbackContext.success();
-
-        } else if (action.equals("getCurrency")) {
-
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getCurrency()));
-
-        } else if (action.equals("setCurrency")) {
-
-            WonderPush.setCurrency(args.getString(0));
-            callbackContext.success();
-
-        } else if (action.equals("getLocale")) {
-
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getLocale()));
-
-        } else if (action.equals("setLocale")) {
-
-            WonderPush.setLocale(args.getString(0));
-            callbackContext.success();
-
-        } else if (action.equals("getTimeZone")) {
 
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getTimeZone()));
-
-        } else if (action.equals("setTimeZone")) {
-
-            WonderPush.setTimeZone(args.getString(0));
-            callbackContext.success();
-
-        // User consent
-        } else if (action.equals("getUserConsent")) {
-
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getUserConsent()));
+            @Override
+            boolean isOutboxable() {
+                return true;
+            }
 
-        } else if (action.equals("setUserConsent")) {
+            @Override
+            boolean mutatesInstallation() {
+                return false;
+            }
+        });
+        register(new Action("setEventAggregation", Threading.SERIAL, Schema.of(required(STRING), optional(NUMBER))) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                String type = args.getString(0);
+                long windowMs = args.optLong(1, 0);
+                eventAggregator.setWindowMs(type, windowMs);
+                callbackContext.success();
+            }
 
-            boolean enabled = args.getBoolean(0);
-            WonderPush.setUserConsent(enabled);
-            callbackContext.success();
+            @Override
+            boolean mutatesInstallation() {
+                return false;
+            }
+        });
+        register(new Action("flushAggregatedEvents", Threading.SERIAL) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                eventAggregator.flushAll();
+                callbackContext.success();
+            }
 
-        } else if (action.equals("clearAllData")) {
+            @Override
+            boolean mutatesInstallation() {
+                return false;
+            }
+        });
+        register(new Action("addTag", Threading.SERIAL, Schema.of(STRING_OR_ARRAY)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                Set<String> tags = getTagsArgument(args);
+                if (tags != null && !tags.isEmpty()) {
+                    WonderPush.addTag(tags.toArray(new String[tags.size()]));
+                }
+                callbackContext.success();
+            }
 
-            WonderPush.clearAllData();
-            callbackContext.success();
+            @Override
+            boolean isOutboxable() {
+                return true;
+            }
+        });
+        register(new Action("removeTag", Threading.SERIAL, Schema.of(STRING_OR_ARRAY)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                Set<String> tags = getTagsArgument(args);
+                if (tags != null && !tags.isEmpty()) {
+                    WonderPush.removeTag(tags.toArray(new String[tags.size()]));
+                }
+                callbackContext.success();
+            }
 
-        } else if (action.equals("clearEventsHistory")) {
+            @Override
+            boolean isOutboxable() {
+                return true;
+            }
+        });
+        register(new Action("removeAllTags", Threading.SERIAL) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                WonderPush.removeAllTags();
+                callbackContext.success();
+            }
 
-            WonderPush.clearEventsHistory();
-            callbackContext.success();
+            @Override
+            boolean isOutboxable() {
+                return true;
+            }
+        });
+        register(new Action("setTags", Threading.SERIAL, Schema.of(optional(STRING_OR_ARRAY))) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                Set<String> target = args.isNull(0) ? null : getTagsArgument(args);
+                if (target == null) {
+                    target = Collections.emptySet();
+                }
+                Set<String> current = WonderPush.getTags();
+                current = current == null ? Collections.<String>emptySet() : new HashSet<>(current);
+                List<String> removed = new ArrayList<>();
+                for (String tag : current) {
+                    if (!target.contains(tag)) removed.add(tag);
+                }
+                List<String> added = new ArrayList<>();
+                for (String tag : target) {
+                    if (!current.contains(tag)) added.add(tag);
+                }
+                if (!removed.isEmpty()) {
+                    WonderPush.removeTag(removed.toArray(new String[removed.size()]));
+                }
+                if (!added.isEmpty()) {
+                    WonderPush.addTag(added.toArray(new String[added.size()]));
+                }
+                callbackContext.success();
+            }
 
-        } else if (action.equals("clearPreferences")) {
+            @Override
+            boolean isOutboxable() {
+                return true;
+            }
+        });
+        register(new CachedReadAction("getTags") {
+            @Override
+            PluginResult read(ActionArgs args) throws JSONException {
+                return new PluginResult(PluginResult.Status.OK, new JSONArray(WonderPush.getTags()));
+            }
+        });
+        register(new CachedReadAction("hasTag", Schema.of(STRING)) {
+            @Override
+            PluginResult read(ActionArgs args) throws JSONException {
+                String tag = args.getString(0);
+                return new PluginResult(PluginResult.Status.OK, WonderPush.hasTag(tag));
+            }
+        });
+        register(new Action("setProperty", Threading.SERIAL, Schema.of(STRING, ANY)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                String field = args.getString(0);
+                Object value = args.get(1);
+                if (propertiesCoalescer.isEnabled()) {
+                    propertiesCoalescer.setProperty(field, value);
+                    schedulePropertiesFlush();
+                } else {
+                    WonderPush.setProperty(field, value);
+                }
+                callbackContext.success();
+            }
 
-            WonderPush.clearPreferences();
-            callbackContext.success();
+            @Override
+            boolean isPropertiesMutation() {
+                return true;
+            }
+        });
+        register(new Action("unsetProperty", Threading.SERIAL, Schema.of(STRING)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                String field = args.getString(0);
+                if (propertiesCoalescer.isEnabled()) {
+                    propertiesCoalescer.unsetProperty(field);
+                    schedulePropertiesFlush();
+                } else {
+                    WonderPush.unsetProperty(field);
+                }
+                callbackContext.success();
+            }
 
-        } else if (action.equals("downloadAllData")) {
+            @Override
+            boolean isPropertiesMutation() {
+                return true;
+            }
+        });
+        register(new Action("addProperty", Threading.SERIAL, Schema.of(STRING, ANY)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                String field = args.getString(0);
+                Object value = args.get(1);
+                if (propertiesCoalescer.isEnabled()) {
+                    propertiesCoalescer.addProperty(field, value);
+                    schedulePropertiesFlush();
+                } else {
+                    WonderPush.addProperty(field, value);
+                }
+                callbackContext.success();
+            }
 
-            WonderPush.downloadAllData();
-            callbackContext.success();
+            @Override
+            boolean isPropertiesMutation() {
+                return true;
+            }
+        });
+        register(new Action("removeProperty", Threading.SERIAL, Schema.of(STRING, ANY)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                String field = args.getString(0);
+                Object value = args.get(1);
+                if (propertiesCoalescer.isEnabled()) {
+                    propertiesCoalescer.removeProperty(field, value);
+                    schedulePropertiesFlush();
+                } else {
+                    WonderPush.removeProperty(field, value);
+                }
+                callbackContext.success();
+            }
 
-        } else if (action.equals("UserPreferences_getDefaultChannelId")) {
+            @Override
+            boolean isPropertiesMutation() {
+                return true;
+            }
+        });
+        register(new CachedReadAction("getPropertyValue", Schema.of(STRING)) {
+            @Override
+            PluginResult read(ActionArgs args) throws JSONException {
+                String field = args.getString(0);
+                return new PluginResult(PluginResult.Status.OK, new JSONObject(Collections.singletonMap("__wrapped", WonderPush.getPropertyValue(field))));
+            }
+        });
+        register(new CachedReadAction("getPropertyValues", Schema.of(STRING)) {
+            @Override
+            PluginResult read(ActionArgs args) throws JSONException {
+                String field = args.getString(0);
+                return new PluginResult(PluginResult.Status.OK, new JSONArray(WonderPush.getPropertyValues(field)));
+            }
+        });
+        register(new CachedReadAction("getProperties") {
+            @Override
+            PluginResult read(ActionArgs args) throws JSONException {
+                return new PluginResult(PluginResult.Status.OK, WonderPush.getProperties());
+            }
+        });
+        register(new Action("putProperties", Threading.SERIAL, Schema.of(OBJECT)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                JSONObject properties = args.getJSONObject(0);
+                if (propertiesCoalescer.isEnabled()) {
+                    propertiesCoalescer.putProperties(properties);
+                    schedulePropertiesFlush();
+                } else {
+                    WonderPush.putProperties(properties);
+                }
+                callbackContext.success();
+            }
 
-            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPushUserPreferences.getDefaultChannelId()));
+            @Override
+            boolean isPropertiesMutation() {
+                return true;
+            }
+        });
+        register(new CachedReadAction("getInstallationCustomProperties") {
+            @Override
+            PluginResult read(ActionArgs args) throws JSONException {
+                return new PluginResult(PluginResult.Status.OK, WonderPush.getInstallationCustomProperties());
+            }
+        });
+        register(new Action("putInstallationCustomProperties", Threading.SERIAL, Schema.of(OBJECT)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                JSONObject custom = args.getJSONObject(0);
+                if (propertiesCoalescer.isEnabled()) {
+                    propertiesCoalescer.putProperties(custom);
+                    schedulePropertiesFlush();
+                } else {
+                    WonderPush.putInstallationCustomProperties(custom);
+                }
+                callbackContext.success();
+            }
 
-        } else if (action.equals("UserPreferences_setDefaultChannelId")) {
+            @Override
+            boolean isPropertiesMutation() {
+                return true;
+            }
+        });
+        register(new Action("setPropertiesCoalescingWindow", Threading.SERIAL, Schema.of(NUMBER)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                propertiesCoalescer.setWindowMs(args.getLong(0));
+                callbackContext.success();
+            }
 
-            String id = args.getString(0);
-            WonderPushUserPreferences.setDefaultChannelId(id);
-            callbackContext.success();
+            @Override
+            boolean mutatesInstallation() {
+                return false;
+            }
+        });
+        register(new Action("flushProperties", Threading.SERIAL) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                flushProperties();
+                callbackContext.success();
+            }
+        });
 
-        } else if (action.equals("UserPreferences_getChannelGroup")) {
+        // Push notification handling
+        register(new Action("subscribeToNotifications", Threading.SERIAL, Schema.of(BOOLEAN)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                boolean fallbackToSettings = args.getBoolean(0);
+                WonderPush.subscribeToNotifications(fallbackToSettings);
+                callbackContext.success();
+            }
+        });
+        register(new ReadAction("isSubscribedToNotifications") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.isSubscribedToNotifications()));
+            }
+        });
+        register(new Action("unsubscribeFromNotifications", Threading.SERIAL) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                WonderPush.unsubscribeFromNotifications();
+                callbackContext.success();
+            }
+        });
+        register(new ReadAction("getNotificationEnabled") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getNotificationEnabled()));
+            }
+        });
+        register(new Action("setNotificationEnabled", Threading.SERIAL, Schema.of(BOOLEAN)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                boolean enabled = args.getBoolean(0);
+                WonderPush.setNotificationEnabled(enabled);
+                callbackContext.success();
+            }
+        });
 
-            String id = args.getString(0);
-            JSONObject rtn = this.jsonSerializeWonderPushChannelGroup(WonderPushUserPreferences.getChannelGroup(id));
-            if (rtn == null) {
-                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, (String) null));
-            } else {
-                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, rtn));
+        // Geolocation
+        register(new Action("enableGeolocation", Threading.SERIAL) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                WonderPush.enableGeolocation();
+                callbackContext.success();
+            }
+        });
+        register(new Action("disableGeolocation", Threading.SERIAL) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                WonderPush.disableGeolocation();
+                callbackContext.success();
+            }
+        });
+        register(new Action("setGeolocation", Threading.SERIAL, Schema.of(NUMBER, NUMBER)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                double latitude = args.getDouble(0);
+                double longitude = args.getDouble(1);
+                boolean accepted = geolocationFilter.accept(latitude, longitude, SystemClock.elapsedRealtime());
+                Metrics.recordGeolocation(accepted);
+                if (accepted) {
+                    Location location = new Location("");
+                    location.setLatitude(latitude);
+                    location.setLongitude(longitude);
+                    WonderPush.setGeolocation(location);
+                }
+                callbackContext.success();
+            }
+        });
+        register(new Action("setGeolocationFilter", Threading.SERIAL, Schema.of(optional(NUMBER), optional(NUMBER))) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                double minDistanceMeters = args.optDouble(0, 0);
+                double minIntervalSeconds = args.optDouble(1, 0);
+                geolocationFilter.setThresholds(minDistanceMeters, (long) (minIntervalSeconds * 1000));
+                callbackContext.success();
             }
 
-        } else if (action.equals("UserPreferences_getChannel")) {
+            @Override
+            boolean mutatesInstallation() {
+                return false;
+            }
+        });
 
-            String id = args.getString(0);
-            JSONObject rtn = this.jsonSerializeWonderPushChannel(WonderPushUserPreferences.getChannel(id));
-            if (rtn == null) {
-                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, (String) null));
-            } else {
-                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, rtn));
+        // Country, currency, locale, timeZone
+        register(new ReadAction("getCountry") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getCountry()));
+            }
+        });
+        register(new Action("setCountry", Threading.SERIAL, Schema.of(optional(STRING))) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                WonderPush.setCountry(args.optString(0));
+                callbackContext.success();
+            }
+        });
+        register(new ReadAction("getCurrency") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getCurrency()));
+            }
+        });
+        register(new Action("setCurrency", Threading.SERIAL, Schema.of(optional(STRING))) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                WonderPush.setCurrency(args.optString(0));
+                callbackContext.success();
+            }
+        });
+        register(new ReadAction("getLocale") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getLocale()));
+            }
+        });
+        register(new Action("setLocale", Threading.SERIAL, Schema.of(optional(STRING))) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                WonderPush.setLocale(args.optString(0));
+                callbackContext.success();
+            }
+        });
+        register(new ReadAction("getTimeZone") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getTimeZone()));
+            }
+        });
+        register(new Action("setTimeZone", Threading.SERIAL, Schema.of(optional(STRING))) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                WonderPush.setTimeZone(args.optString(0));
+                callbackContext.success();
             }
+        });
 
-        } else if (action.equals("UserPreferences_setChannelGroups")) {
+        // User consent
+        register(new ReadAction("getUserConsent") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPush.getUserConsent()));
+            }
+        });
+        register(new Action("setUserConsent", Threading.SERIAL, Schema.of(BOOLEAN)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                eventAggregator.flushAll();
+                boolean enabled = args.getBoolean(0);
+                WonderPush.setUserConsent(enabled);
+                replayOutbox();
+                callbackContext.success();
+            }
+        });
+        register(new Action("clearAllData", Threading.SERIAL) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                eventAggregator.clear();
+                WonderPush.clearAllData();
+                getChannelFingerprints().clear();
+                geolocationFilter.reset();
+                if (outboxEnabled) {
+                    getOutbox().clear();
+                }
+                callbackContext.success();
+            }
+        });
+        register(new Action("clearEventsHistory", Threading.SERIAL) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                eventAggregator.clear();
+                WonderPush.clearEventsHistory();
+                callbackContext.success();
+            }
+        });
+        register(new Action("clearPreferences", Threading.SERIAL) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                WonderPush.clearPreferences();
+                getChannelFingerprints().clear();
+                callbackContext.success();
+            }
+        });
+        register(new Action("downloadAllData", Threading.POOL) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                WonderPush.downloadAllData();
+                callbackContext.success();
+            }
+        });
+        register(new ReadAction("UserPreferences_getDefaultChannelId") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, WonderPushUserPreferences.getDefaultChannelId()));
+            }
+        });
+        register(new Action("UserPreferences_setDefaultChannelId", Threading.SERIAL, Schema.of(optional(STRING))) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                String id = args.optString(0);
+                WonderPushUserPreferences.setDefaultChannelId(id);
+                callbackContext.success();
+            }
+        });
+        register(new ReadAction("UserPreferences_getChannelGroup", Schema.of(STRING)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                String id = args.getString(0);
+                JSONObject rtn = WonderPushPlugin.this.jsonSerializeWonderPushChannelGroup(WonderPushUserPreferences.getChannelGroup(id));
+                if (rtn == null) {
+                    callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, (String) null));
+                } else {
+                    callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, rtn));
+                }
+            }
+        });
+        register(new ReadAction("UserPreferences_getChannel", Schema.of(STRING)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                String id = args.getString(0);
+                JSONObject rtn = WonderPushPlugin.this.jsonSerializeWonderPushChannel(WonderPushUserPreferences.getChannel(id));
+                if (rtn == null) {
+                    callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, (String) null));
+                } else {
+                    callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, rtn));
+                }
+            }
+        });
+        register(new Action("UserPreferences_setChannelGroups", Threading.SERIAL, Schema.of(ARRAY)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                JSONArray groupsJson = args.getJSONArray(0);
+                ChannelFingerprints.Diff diff = getChannelFingerprints().diff(ChannelFingerprints.CHANNEL_GROUPS, groupsJson);
+                List<WonderPushChannelGroup> groups = new ArrayList<>(diff.put.size());
+                for (JSONObject groupJson : new ArrayList<>(diff.put)) {
+                    WonderPushChannelGroup group = WonderPushPlugin.this.jsonDeserializeWonderPushChannelGroup(groupJson);
+                    if (group == null) {
+                        Log.w(TAG, "Skipping channel group that could not be read " + groupJson);
+                        diff.skip(groupJson);
+                        continue;
+                    }
+                    groups.add(group);
+                }
+                if (diff.full) {
+                    WonderPushUserPreferences.setChannelGroups(groups);
+                } else {
+                    for (String id : diff.removed) {
+                        WonderPushUserPreferences.removeChannelGroup(id);
+                    }
+                    for (WonderPushChannelGroup group : groups) {
+                        WonderPushUserPreferences.putChannelGroup(group);
+                    }
+                }
+                getChannelFingerprints().commit(ChannelFingerprints.CHANNEL_GROUPS, diff);
+                callbackContext.success(diff.toJSON());
+            }
+        });
+        register(new Action("UserPreferences_setChannels", Threading.SERIAL, Schema.of(ARRAY)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                JSONArray channelsJson = args.getJSONArray(0);
+                ChannelFingerprints.Diff diff = getChannelFingerprints().diff(ChannelFingerprints.CHANNELS, channelsJson);
+                List<WonderPushChannel> channels = new ArrayList<>(diff.put.size());
+                for (JSONObject channelJson : new ArrayList<>(diff.put)) {
+                    WonderPushChannel channel = WonderPushPlugin.this.jsonDeserializeWonderPushChannel(channelJson);
+                    if (channel == null) {
+                        Log.w(TAG, "Skipping channel that could not be read " + channelJson);
+                        diff.skip(channelJson);
+                        continue;
+                    }
+                    channels.add(channel);
+                }
+                if (diff.full) {
+                    WonderPushUserPreferences.setChannels(channels);
+                } else {
+                    for (String id : diff.removed) {
+                        WonderPushUserPreferences.removeChannel(id);
+                    }
+                    for (WonderPushChannel channel : channels) {
+                        WonderPushUserPreferences.putChannel(channel);
+                    }
+                }
+                getChannelFingerprints().commit(ChannelFingerprints.CHANNELS, diff);
+                callbackContext.success(diff.toJSON());
+            }
+        });
+        register(new Action("UserPreferences_putChannelGroup", Threading.SERIAL, Schema.of(OBJECT)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                JSONObject groupJson = args.getJSONObject(0);
+                WonderPushChannelGroup group = WonderPushPlugin.this.jsonDeserializeWonderPushChannelGroup(groupJson);
+                WonderPushUserPreferences.putChannelGroup(group);
+                getChannelFingerprints().put(ChannelFingerprints.CHANNEL_GROUPS, groupJson);
+                callbackContext.success();
+            }
+        });
+        register(new Action("UserPreferences_putChannel", Threading.SERIAL, Schema.of(OBJECT)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                JSONObject channelJson = args.getJSONObject(0);
+                WonderPushChannel channel = WonderPushPlugin.this.jsonDeserializeWonderPushChannel(channelJson);
+                WonderPushUserPreferences.putChannel(channel);
+                getChannelFingerprints().put(ChannelFingerprints.CHANNELS, channelJson);
+                callbackContext.success();
+            }
+        });
+        register(new Action("UserPreferences_removeChannelGroup", Threading.SERIAL, Schema.of(STRING)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                String id = args.getString(0);
+                WonderPushUserPreferences.removeChannelGroup(id);
+                getChannelFingerprints().remove(ChannelFingerprints.CHANNEL_GROUPS, id);
+                callbackContext.success();
+            }
+        });
+        register(new Action("UserPreferences_removeChannel", Threading.SERIAL, Schema.of(STRING)) {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                String id = args.getString(0);
+                WonderPushUserPreferences.removeChannel(id);
+                getChannelFingerprints().remove(ChannelFingerprints.CHANNELS, id);
+                callbackContext.success();
+            }
+        });
 
-            JSONArray groupsJson = args.getJSONArray(0);
-            List<WonderPushChannelGroup> groups = new ArrayList<>(groupsJson.length());
-            for (int i = 0, e = groupsJson.length(); i < e; ++i) {
-                groups.add(this.jsonDeserializeWonderPushChannelGroup(groupsJson.optJSONObject(i)));
+        // Diagnostics
+        register(new Action("getMetrics") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                callbackContext.success(Metrics.snapshot());
+            }
+        });
+        register(new Action("resetMetrics") {
+            @Override
+            void execute(ActionArgs args, CallbackContext callbackContext) throws JSONException {
+                Metrics.reset();
+                callbackContext.success();
             }
-            WonderPushUserPreferences.setChannelGroups(groups);
-            callbackContext.success();
+        });
+    }
 
-        } else if (action.equals("UserPreferences_setChannels")) {
+    /**
+     * Must be called from the serial executor.
+     */
+    private ChannelFingerprints getChannelFingerprints() {
+        if (channelFingerprints == null) {
+            channelFingerprints = new ChannelFingerprints(cordova.getContext());
+        }
+        return channelFingerprints;
+    }
 
-            JSONArray channelsJson = args.getJSONArray(0);
-            List<WonderPushChannel> channels = new ArrayList<>(channelsJson.length());
-            for (int i = 0, e = channelsJson.length(); i < e; ++i) {
-                channels.add(this.jsonDeserializeWonderPushChannel(channelsJson.optJSONObject(i)));
-            }
-            WonderPushUserPreferences.setChannels(channels);
-            callbackContext.success();
+    /**
+     * Must be called from the serial executor.
+     */
+    private Outbox getOutbox() {
+        if (outbox == null) {
+            outbox = new Outbox(new File(cordova.getContext().getFilesDir(), OUTBOX_FILENAME), outboxCapacity);
+        }
+        return outbox;
+    }
 
-        } else if (action.equals("UserPreferences_putChannelGroup")) {
+    /**
+     * Whether the SDK is initialized and, if required, has the user consent.
+     */
+    private boolean isSdkReady() {
+        if (!WonderPush.isInitialized()) return false;
+        if (requiresUserConsent == null) {
+            requiresUserConsent = readRequiresUserConsent();
+        }
+        return !requiresUserConsent || WonderPush.getUserConsent();
+    }
 
-            JSONObject groupJson = args.getJSONObject(0);
-            WonderPushChannelGroup group = this.jsonDeserializeWonderPushChannelGroup(groupJson);
-            WonderPushUserPreferences.putChannelGroup(group);
-            callbackContext.success();
+    /**
+     * Reads the {@code REQUIRES_USER_CONSENT} plugin variable, which build-extras.gradle keeps in the app BuildConfig,
+     * falling back to the meta-data read by the SDK, like with Capacitor.
+     */
+    private boolean readRequiresUserConsent() {
+        Boolean buildConfigValue = readBuildConfigBoolean(BUILD_CONFIG_REQUIRES_USER_CONSENT);
+        if (buildConfigValue != null) {
+            return buildConfigValue;
+        }
+        Context context = cordova.getContext();
+        try {
+            Bundle metaData = context.getPackageManager().getApplicationInfo(context.getPackageName(), PackageManager.GET_META_DATA).metaData;
+            return metaData != null && "true".equals(String.valueOf(metaData.get(METADATA_REQUIRES_USER_CONSENT)));
+        } catch (PackageManager.NameNotFoundException ex) {
+            Log.e(TAG, "Could not read application meta-data", ex);
+            return false;
+        }
+    }
 
-        } else if (action.equals("UserPreferences_putChannel")) {
+    /**
+     * Reads a boolean field of the app BuildConfig, looked up in the package of the activity then in the application id.
+     * @return {@code null} if there is no such field.
+     */
+    private Boolean readBuildConfigBoolean(String name) {
+        Set<String> packageNames = new LinkedHashSet<>();
+        if (cordova.getActivity() != null) {
+            packageNames.add(cordova.getActivity().getClass().getPackage().getName());
+        }
+        packageNames.add(cordova.getContext().getPackageName());
+        Object value = AppBuildConfig.readField(name, packageNames);
+        return value instanceof Boolean ? (Boolean) value : null;
+    }
 
-            JSONObject channelJson = args.getJSONObject(0);
-            WonderPushChannel channel = this.jsonDeserializeWonderPushChannel(channelJson);
-            WonderPushUserPreferences.putChannel(channel);
-            callbackContext.success();
+    /**
+     * Executes the actions waiting in the outbox, once the SDK can take them. Must be called from the serial executor.
+     * Every plugin instance is then told that the installation changed, so that JavaScript forgets the tags it knew.
+     */
+    private void replayOutbox() {
+        if (replayingOutbox || !outboxEnabled || getOutbox().isEmpty() || !isSdkReady()) return;
+        // Replayed actions would replay the outbox again
+        replayingOutbox = true;
+        try {
+            Outbox.Operation operation;
+            while ((operation = outbox.peek()) != null) {
+                Action handler = actions.get(operation.action);
+                if (handler != null) {
+                    try {
+                        invokeHandler(handler, new ActionArgs(operation.args), new BatchedCallbackContext(webView));
+                    } catch (JSONException | RuntimeException ex) {
+                        Log.e(TAG, "Could not replay " + operation.action + " from the outbox", ex);
+                    }
+                }
+                outbox.consume(operation);
+            }
+        } finally {
+            replayingOutbox = false;
+        }
+        installationCache.invalidate();
+        LocalBroadcastManager.getInstance(cordova.getContext()).sendBroadcast(new Intent(INTENT_INSTALLATION_CHANGED));
+    }
 
-        } else if (action.equals("UserPreferences_removeChannelGroup")) {
+    /**
+     * Writes the outbox to disk after a short delay, so that bursts of calls are written together.
+     * Must be called from the serial executor.
+     */
+    private void scheduleOutboxSync() {
+        if (outboxSyncScheduled) return;
+        outboxSyncScheduled = true;
+        mainHandler.postDelayed(scheduledSyncOutboxRunnable, OUTBOX_SYNC_DELAY_MS);
+    }
 
-            String id = args.getString(0);
-            WonderPushUserPreferences.removeChannelGroup(id);
-            callbackContext.success();
+    /**
+     * Applies pending property mutations. Must be called from the serial executor.
+     */
+    private void flushProperties() {
+        propertiesFlushScheduled = false;
+        propertiesCoalescer.flush();
+    }
 
-        } else if (action.equals("UserPreferences_removeChannel")) {
+    /**
+     * Flushes pending property mutations once the coalescing window is over. Must be called from the serial executor.
+     */
+    private void schedulePropertiesFlush() {
+        if (propertiesFlushScheduled) return;
+        propertiesFlushScheduled = true;
+        mainHandler.postDelayed(scheduledFlushPropertiesRunnable, propertiesCoalescer.getWindowMs());
+    }
 
-            String id = args.getString(0);
-            WonderPushUserPreferences.removeChannel(id);
-            callbackContext.success();
+    /**
+     * Tracks the aggregated event of the given type once its window is over. Must be called from the serial executor.
+     */
+    private void scheduleAggregatedEventFlush(final String type) {
+        mainHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                serialExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        eventAggregator.flushIfDue(type);
+                    }
+                });
+            }
+        }, eventAggregator.getWindowMs(type));
+    }
 
-        } else {
-            return false;
+    /**
+     * Reads a tag or an array of tags, without duplicates and in the given order.
+     */
+    private static Set<String> getTagsArgument(ActionArgs args) throws JSONException {
+        Object value = args.get(0);
+        if (value instanceof JSONArray) {
+            JSONArray argTags = (JSONArray) value;
+            Set<String> tags = new LinkedHashSet<>(argTags.length() * 2);
+            for (int i = 0; i < argTags.length(); ++i) {
+                Object v = argTags.get(i);
+                if (v instanceof String) {
+                    tags.add((String) v);
+                }
+            }
+            return tags;
+        } else if (value instanceof String) {
+            return Collections.singleton((String) value);
         }
-
-        return true;
+        return null;
     }
 
     private JSONObject jsonSerializeWonderPushChannelGroup(WonderPushChannelGroup group) {
         JSONObject rtn = null;
         if (group != null) {
-            rtn = new JSONObject();
             try {
-                rtn.putOpt("id", group.getId());
-                rtn.putOpt("name", group.getName());
+                rtn = ChannelCodecs.CHANNEL_GROUP.encode(group);
             } catch (JSONException ex) {
                 Log.e("WonderPush", "Unexpected error while serializing the WonderPushChannelGroup " + group, ex);
             }
@@ -549,8 +1810,7 @@ public class WonderPushPlugin extends CordovaPlugin implements Delegate.SubDeleg
         WonderPushChannelGroup rtn = null;
         if (input != null) {
             try {
-                rtn = new WonderPushChannelGroup(input.getString("id"))
-                        .setName(JSONUtil.optString(input, "name"));
+                rtn = ChannelCodecs.CHANNEL_GROUP.decode(input);
             } catch (JSONException ex) {
                 Log.e("WonderPush", "Unexpected error while deserializing into a WonderPushChannelGroup " + input, ex);
             }
@@ -561,25 +1821,8 @@ public class WonderPushPlugin extends CordovaPlugin implements Delegate.SubDeleg
     private JSONObject jsonSerializeWonderPushChannel(WonderPushChannel channel) {
         JSONObject rtn = null;
         if (channel != null) {
-            rtn = new JSONObject();
             try {
-                rtn.putOpt("bypassDnd", channel.getBypassDnd());
-                rtn.putOpt("color", channel.getColor());
-                rtn.putOpt("description", channel.getDescription());
-                rtn.putOpt("groupId", channel.getGroupId());
-                rtn.putOpt("id", channel.getId());
-                rtn.putOpt("importance", channel.getImportance());
-                rtn.putOpt("lightColor", channel.getLightColor());
-                rtn.putOpt("lights", channel.getLights());
-                rtn.putOpt("localOnly", channel.getLocalOnly());
-                rtn.putOpt("lockscreenVisibility", channel.getLockscreenVisibility());
-                rtn.putOpt("name", channel.getName());
-                rtn.putOpt("showBadge", channel.getShowBadge());
-                rtn.putOpt("sound", channel.getSound());
-                rtn.putOpt("soundUri", channel.getSoundUri() == null ? null : channel.getSoundUri().toString());
-                rtn.putOpt("vibrate", channel.getVibrate());
-                rtn.putOpt("vibrateInSilentMode", channel.getVibrateInSilentMode());
-                rtn.putOpt("vibrationPattern", JSONUtil.wrap(channel.getVibrationPattern()));
+                rtn = ChannelCodecs.CHANNEL.encode(channel);
             } catch (JSONException ex) {
                 Log.e("WonderPush", "Unexpected error while serializing the WonderPushChannel " + channel, ex);
             }
@@ -591,22 +1834,7 @@ public class WonderPushPlugin extends CordovaPlugin implements Delegate.SubDeleg
         WonderPushChannel rtn = null;
         if (input != null) {
             try {
-                rtn = new WonderPushChannel(input.getString("id"), JSONUtil.optString(input, "groupId"))
-                        .setName(JSONUtil.optString(input, "name"))
-                        .setDescription(JSONUtil.optString(input, "description"))
-                        .setBypassDnd(JSONUtil.optBoolean(input, "bypassDnd"))
-                        .setShowBadge(JSONUtil.optBoolean(input, "showBadge"))
-                        .setImportance(JSONUtil.optInteger(input, "importance"))
-                        .setLights(JSONUtil.optBoolean(input, "lights"))
-                        .setVibrate(JSONUtil.optBoolean(input, "vibrate"))
-                        .setVibrationPattern(JSONUtil.optLongArray(input, "vibrationPattern"))
-                        .setLightColor(JSONUtil.optInteger(input, "lightColor"))
-                        .setLockscreenVisibility(JSONUtil.optInteger(input, "lockscreenVisibility"))
-                        .setSound(JSONUtil.optBoolean(input, "sound"))
-                        .setSoundUri(JSONUtil.optUri(input, "soundUri"))
-                        .setVibrateInSilentMode(JSONUtil.optBoolean(input, "vibrateInSilentMode"))
-                        .setColor(JSONUtil.optInteger(input, "color"))
-                        .setLocalOnly(JSONUtil.optBoolean(input, "localOnly"));
+                rtn = ChannelCodecs.CHANNEL.decode(input);
             } catch (JSONException ex) {
                 Log.e("WonderPush", "Unexpected error while deserializing into a WonderPushChannel " + input, ex);
             }
@@ -617,50 +1845,57 @@ public class WonderPushPlugin extends CordovaPlugin implements Delegate.SubDeleg
 
     @Override
     public String urlForDeepLink(DeepLinkEvent event) {
-        CallbackContext delegate = WonderPushPlugin.this.jsDelegate;
-        if (delegate == null) {
+        CallbackContext delegate = this.jsDelegate;
+        if (delegate == null || !jsDelegateHasUrlForDeepLink) {
             return event.getUrl();
         }
-        String jsCallbackWaiterId = createJsCallbackWaiter();
+        long jsCallbackWaiterId = nextJsCallbackId.incrementAndGet();
+        JsCallbackWaiter waiter = new JsCallbackWaiter();
+        synchronized (jsCallbackWaiters) {
+            jsCallbackWaiters.put(jsCallbackWaiterId, waiter);
+        }
         try {
             JSONObject info = new JSONObject();
             info.put("method", "urlForDeepLink"); // that's the Android name of this method
             info.put("__callbackId", jsCallbackWaiterId);
             info.put("url", event.getUrl());
-            PluginResult call = new PluginResult(PluginResult.Status.OK, info);
-            call.setKeepCallback(true);
-            delegate.sendPluginResult(call);
+            long sentAt = System.nanoTime();
+            // Deliver now, after the events sent before
+            eventChannel.send(delegate, info, null, EventChannel.Priority.HIGH);
+            eventChannel.flush();
+            Object value = waiter.await(urlForDeepLinkTimeoutMs, TimeUnit.MILLISECONDS);
+            if (value == null) {
+                Metrics.recordJsCallbackTimeout();
+                Log.w(TAG, "Timed out while waiting for a JavaScript callback: " + jsCallbackWaiterId, new TimeoutException());
+                return event.getUrl();
+            }
+            Metrics.recordJsCallback(System.nanoTime() - sentAt);
+            if (value == JSONObject.NULL) {
+                return null;
+            }
+            if (!(value instanceof String)) {
+                Log.e(TAG, "WonderPushDelegate.urlForDeepLink expected a string from JavaScript, got a " + value.getClass().getCanonicalName() + ": " + value, new IllegalArgumentException());
+                return event.getUrl();
+            }
+            return (String) value;
         } catch (JSONException ex) {
             Log.e(TAG, "Unexpected JSONException while calling JavaScript plugin delegate", ex);
-        }
-        AtomicReference<Object> valueRef = waitJsCallback(jsCallbackWaiterId, 3, TimeUnit.SECONDS);
-        Object value = valueRef == null ? null : valueRef.get();
-        if (valueRef != null && value != null && !(value instanceof String)) {
-            Log.e(TAG, "WonderPushDelegate.urlForDeepLink expected a string from JavaScript, got a " + value.getClass().getCanonicalName() + ": " + value, new IllegalArgumentException());
-            valueRef = null;
-            value = null;
-        }
-        if (valueRef != null && (value == null || value instanceof String)) {
-            return (String) value;
-        } else {
             return event.getUrl();
+        } catch (InterruptedException ex) {
+            Log.e(TAG, "Interrupted while waiting for a JavaScript callback: " + jsCallbackWaiterId, ex);
+            Thread.currentThread().interrupt();
+            return event.getUrl();
+        } finally {
+            synchronized (jsCallbackWaiters) {
+                jsCallbackWaiters.remove(jsCallbackWaiterId);
+            }
         }
     }
 
     @Override
     public void onNotificationOpened(JSONObject notif, int buttonIndex) {
-        CallbackContext delegate = this.jsDelegate;
-        if (delegate == null) {
-            return;
-        }
         try {
-            JSONObject info = new JSONObject();
-            info.put("method", "onNotificationOpened"); // that's the Android name of this method
-            info.put("notification", notif);
-            info.put("buttonIndex", buttonIndex);
-            PluginResult call = new PluginResult(PluginResult.Status.OK, info);
-            call.setKeepCallback(true);
-            delegate.sendPluginResult(call);
+            forwardNotificationOpened(Delegate.notificationOpenedPayload(notif, buttonIndex), notif, buttonIndex);
         } catch (JSONException ex) {
             Log.e(TAG, "Unexpected JSONException while calling JavaScript plugin delegate", ex);
         }
@@ -668,66 +1903,56 @@ public class WonderPushPlugin extends CordovaPlugin implements Delegate.SubDeleg
 
     @Override
     public void onNotificationReceived(JSONObject notif) {
+        try {
+            forwardNotificationReceived(Delegate.notificationReceivedPayload(notif), notif);
+        } catch (JSONException ex) {
+            Log.e(TAG, "Unexpected JSONException while calling JavaScript plugin delegate", ex);
+        }
+    }
+
+    @Override
+    public void forwardNotificationOpened(JSONObject payload, JSONObject notif, int buttonIndex) {
         CallbackContext delegate = this.jsDelegate;
         if (delegate == null) {
             return;
         }
-        try {
-            JSONObject info = new JSONObject();
-            info.put("method", "onNotificationReceived"); // that's the Android name of this method
-            info.put("notification", notif);
-            PluginResult call = new PluginResult(PluginResult.Status.OK, info);
-            call.setKeepCallback(true);
-            delegate.sendPluginResult(call);
-        } catch (JSONException ex) {
-            Log.e(TAG, "Unexpected JSONException while calling JavaScript plugin delegate", ex);
+        String key = EventChannel.notificationKey("onNotificationOpened:" + buttonIndex, notif);
+        if (dedupFilter.isDuplicate(key, SystemClock.elapsedRealtime())) {
+            return;
         }
+        eventChannel.send(delegate, payload, key, EventChannel.Priority.HIGH);
     }
 
     @Override
-    public boolean subDelegateIsReady() {
-        return this.jsDelegate != null;
+    public void forwardNotificationReceived(JSONObject payload, JSONObject notif) {
+        CallbackContext delegate = this.jsDelegate;
+        if (delegate == null) {
+            return;
+        }
+        eventChannel.send(delegate, payload, EventChannel.notificationKey("onNotificationReceived", notif), EventChannel.Priority.LOW);
     }
 
-    private String createJsCallbackWaiter() {
-        String id = UUID.randomUUID().toString();
-        jsCallbackWaiters.put(id, new ArrayBlockingQueue(1));
-        return id;
+    @Override
+    public boolean subDelegateIsReady() {
+        return this.jsDelegate != null;
     }
 
-    private AtomicReference<Object> waitJsCallback(String id, long timeout, TimeUnit unit) {
-        if (id == null) {
-            Log.e(TAG, "Cannot wait for JavaScript, callback with a null id", new NullPointerException());
-            return null;
-        }
-        BlockingQueue<Object> queue = jsCallbackWaiters.get(id);
-        if (queue == null) {
-            Log.e(TAG, "Cannot wait for JavaScript, callback does not exist: " + id, new IllegalStateException());
-            return null;
-        }
-        try {
-            Object value = queue.poll(timeout, unit);
-            if (value == null) {
-                Log.w(TAG, "Timed out while waiting for a JavaScript callback: " + id, new TimeoutException());
-                return null;
-            }
-            return new AtomicReference<Object>(value);
-        } catch (InterruptedException ex) {
-            Log.e(TAG, "Interrupted while waiting for a JavaScript callback: " + id, ex);
-            return null;
-        } finally {
-            jsCallbackWaiters.remove(id);
-        }
+    @Override
+    public boolean subDelegateHasUrlForDeepLink() {
+        return this.jsDelegate != null && jsDelegateHasUrlForDeepLink;
     }
 
-    private void jsCalledBack(String id, Object value) {
+    private void jsCalledBack(long id, Object value) {
         if (value == null) value = JSONObject.NULL;
-        BlockingQueue<Object> queue = jsCallbackWaiters.get(id);
-        if (queue == null) {
+        JsCallbackWaiter waiter;
+        synchronized (jsCallbackWaiters) {
+            waiter = jsCallbackWaiters.get(id);
+        }
+        if (waiter == null) {
             Log.e(TAG, "Cannot record a JavaScript callback, callback does not exist (too late?): " + id, new IllegalStateException());
             return;
         }
-        boolean succeeded = queue.offer(value);
+        boolean succeeded = waiter.complete(value);
         if (!succeeded) {
             Log.e(TAG, "Cannot record a JavaScript callback, value already recorded: " + id, new IllegalStateException());
         }
@@ -0,0 +1,79 @@
+package com.wonderpush.sdk.cordova;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs the benchmarks and compares their scores to a baseline, failing if any got slower than the tolerance allows.
+ *
+ * Arguments: the benchmarks to include as a regular expression, the file to write the results to,
+ * the baseline file, and the tolerance as a fraction of the baseline score.
+ * The baseline is a results file of a previous run, in the JSON format of JMH. All scores are times per operation.
+ */
+public final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException, JSONException {
+        String include = args[0];
+        File results = new File(args[1]);
+        File baseline = new File(args[2]);
+        double tolerance = Double.parseDouble(args[3]);
+
+        Collection<RunResult> runResults = new Runner(new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(results.getPath())
+                .build()).run();
+
+        if (!baseline.exists()) {
+            System.out.println("No baseline at " + baseline + ", copy " + results + " there to create it");
+            return;
+        }
+        Map<String, Double> baselineScores = readScores(baseline);
+        int regressions = 0;
+        for (RunResult runResult : runResults) {
+            String benchmark = runResult.getParams().getBenchmark();
+            double score = runResult.getPrimaryResult().getScore();
+            Double baselineScore = baselineScores.get(benchmark);
+            if (baselineScore == null) {
+                System.out.println(String.format("%-80s %12.1f  (no baseline)", benchmark, score));
+                continue;
+            }
+            double ratio = score / baselineScore;
+            boolean regressed = ratio > 1 + tolerance;
+            if (regressed) ++regressions;
+            System.out.println(String.format("%-80s %12.1f  x%.2f%s", benchmark, score, ratio, regressed ? "  REGRESSION" : ""));
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmarks are more than " + Math.round(tolerance * 100) + "% slower than the baseline");
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Double> readScores(File file) throws IOException, JSONException {
+        JSONArray results = new JSONArray(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        Map<String, Double> rtn = new HashMap<>();
+        for (int i = 0; i < results.length(); ++i) {
+            JSONObject result = results.getJSONObject(i);
+            rtn.put(result.getString("benchmark"), result.getJSONObject("primaryMetric").getDouble("score"));
+        }
+        return rtn;
+    }
+
+}
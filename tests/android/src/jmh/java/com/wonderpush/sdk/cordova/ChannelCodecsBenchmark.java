@@ -0,0 +1,67 @@
+package com.wonderpush.sdk.cordova;
+
+import android.net.Uri;
+
+import com.wonderpush.sdk.WonderPushChannel;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes a notification channel with all its fields set, as exchanged with JavaScript.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChannelCodecsBenchmark {
+
+    private WonderPushChannel channel;
+    private JSONObject json;
+
+    @Setup
+    public void setUp() throws JSONException {
+        channel = new WonderPushChannel("channel", "group")
+                .setName("Channel")
+                .setDescription("A channel")
+                .setBypassDnd(false)
+                .setShowBadge(true)
+                .setImportance(3)
+                .setLights(true)
+                .setLightColor(0xff00ff00)
+                .setVibrate(true)
+                .setVibrationPattern(new long[] { 0, 100, 50, 100 })
+                .setLockscreenVisibility(1)
+                .setSound(true)
+                .setSoundUri(Uri.parse("content://sound"))
+                .setVibrateInSilentMode(false)
+                .setColor(0xff0000ff)
+                .setLocalOnly(false);
+        json = ChannelCodecs.CHANNEL.encode(channel);
+    }
+
+    @Benchmark
+    public JSONObject encode() throws JSONException {
+        return ChannelCodecs.CHANNEL.encode(channel);
+    }
+
+    @Benchmark
+    public WonderPushChannel decode() throws JSONException {
+        return ChannelCodecs.CHANNEL.decode(json);
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.wonderpush.sdk.cordova;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks keys against a full filter, half of them being duplicates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DedupFilterBenchmark {
+
+    private final DedupFilter filter = new DedupFilter(DedupFilter.DEFAULT_WINDOW_MS);
+    private final String[] keys = new String[DedupFilter.CAPACITY * 2];
+    private int next;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = "notificationOpen:campaign" + i + ":notification" + i;
+        }
+    }
+
+    @Benchmark
+    public boolean isDuplicate() {
+        // Keys come back after the ring wrapped around once, half of them still remembered
+        String key = keys[next];
+        next = (next + 1) % keys.length;
+        return filter.isDuplicate(key, now++ / 1000);
+    }
+
+}
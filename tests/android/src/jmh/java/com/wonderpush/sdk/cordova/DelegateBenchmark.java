@@ -0,0 +1,93 @@
+package com.wonderpush.sdk.cordova;
+
+import com.wonderpush.sdk.DeepLinkEvent;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves notifications received before JavaScript is ready, then replays them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DelegateBenchmark {
+
+    private static final int NOTIFICATIONS = 16;
+
+    private final Delegate delegate = new Delegate();
+    private final JSONObject[] notifications = new JSONObject[NOTIFICATIONS];
+    private boolean ready;
+    private final Delegate.SubDelegate subDelegate = new Delegate.SubDelegate() {
+        @Override
+        public boolean subDelegateIsReady() {
+            return ready;
+        }
+
+        @Override
+        public boolean subDelegateHasUrlForDeepLink() {
+            return false;
+        }
+
+        @Override
+        public void forwardNotificationOpened(JSONObject payload, JSONObject notif, int buttonIndex) {
+        }
+
+        @Override
+        public void forwardNotificationReceived(JSONObject payload, JSONObject notif) {
+        }
+
+        @Override
+        public String urlForDeepLink(DeepLinkEvent event) {
+            return event.getUrl();
+        }
+
+        @Override
+        public void onNotificationOpened(JSONObject notif, int buttonIndex) {
+        }
+
+        @Override
+        public void onNotificationReceived(JSONObject notif) {
+        }
+    };
+
+    @Setup
+    public void setUp() throws JSONException {
+        for (int i = 0; i < NOTIFICATIONS; ++i) {
+            notifications[i] = new JSONObject().put("alert", "Hello").put("_wp", new JSONObject().put("c", "c" + i).put("n", "n" + i));
+        }
+        Delegate.addSubDelegate(subDelegate);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Delegate.removeSubDelegate(subDelegate);
+    }
+
+    @Benchmark
+    public void saveAndReplay() {
+        ready = false;
+        for (JSONObject notification : notifications) {
+            delegate.onNotificationReceived(notification);
+        }
+        ready = true;
+        Delegate.replaySavedNotifications();
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.wonderpush.sdk.cordova;
+
+import com.wonderpush.sdk.WonderPush;
+
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls actions of the plugin like JavaScript does, waiting for their result.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+
+    private PluginFixture fixture;
+    private JSONArray batch;
+
+    @Setup
+    public void setUp() throws IOException, JSONException {
+        WonderPush.reset();
+        fixture = new PluginFixture(Files.createTempDirectory("wonderpush-benchmark").toFile()).initialize();
+        batch = new JSONArray();
+        for (int i = 0; i < 4; ++i) {
+            batch.put(new JSONObject().put("action", "setLogging").put("args", new JSONArray().put(false)));
+            batch.put(new JSONObject().put("action", "getUserId").put("args", new JSONArray()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.destroy();
+    }
+
+    @Benchmark
+    public PluginResult inlineAction() throws JSONException, InterruptedException {
+        return fixture.call("setLogging", false).next();
+    }
+
+    @Benchmark
+    public PluginResult serialAction() throws JSONException, InterruptedException {
+        return fixture.call("getUserId").next();
+    }
+
+    @Benchmark
+    public PluginResult batchOfEight() throws JSONException, InterruptedException {
+        return fixture.call("__batch", batch).next();
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.wonderpush.sdk.cordova;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.PluginResult;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queues a batch of events and delivers them, as when notifications are received in a burst.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventChannelBenchmark {
+
+    private static final int EVENTS = 32;
+
+    private EventChannel eventChannel;
+    private CallbackContext target;
+    private final JSONObject[] events = new JSONObject[EVENTS];
+
+    @Setup
+    public void setUp() throws JSONException {
+        // Only flushed by the benchmark, on its thread
+        eventChannel = new EventChannel(EventChannel.DEFAULT_CAPACITY, EventChannel.DEFAULT_CAPACITY, 60000,
+                EventChannel.OverflowPolicy.DROP, EventChannel.DEFAULT_LOW_PRIORITY_RATE);
+        target = new CallbackContext("forwarder", new CordovaWebView() {
+            @Override
+            public void sendPluginResult(PluginResult cr, String callbackId) {
+            }
+        });
+        for (int i = 0; i < EVENTS; ++i) {
+            events[i] = new JSONObject()
+                    .put("type", "notificationOpen")
+                    .put("notification", new JSONObject().put("_wp", new JSONObject().put("c", "c" + i).put("n", "n" + i)));
+        }
+    }
+
+    @Benchmark
+    public void sendAndFlush() {
+        for (JSONObject event : events) {
+            eventChannel.send(target, event, null, EventChannel.Priority.HIGH);
+        }
+        eventChannel.flush();
+    }
+
+}
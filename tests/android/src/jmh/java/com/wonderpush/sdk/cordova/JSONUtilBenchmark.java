@@ -0,0 +1,61 @@
+package com.wonderpush.sdk.cordova;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts the values given by the SDK to JSON, and reads the WonderPush data of notifications.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JSONUtilBenchmark {
+
+    private Map<String, Object> map;
+    private JSONObject notification;
+
+    @Setup
+    public void setUp() throws JSONException {
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("string", "value");
+        nested.put("int", 42);
+        nested.put("double", 4.2);
+        nested.put("boolean", true);
+        map = new HashMap<>(nested);
+        map.put("list", Arrays.asList("a", "b", "c", 1, 2, 3));
+        map.put("array", new long[] { 1, 2, 3, 4 });
+        map.put("map", nested);
+        notification = new JSONObject()
+                .put("alert", "Hello")
+                .put("_wp", "{\"c\":\"campaignId\",\"n\":\"notificationId\",\"receipt\":false,\"type\":\"simple\"}");
+    }
+
+    @Benchmark
+    public Object wrap() {
+        return JSONUtil.wrap(map);
+    }
+
+    @Benchmark
+    public JSONObject optWonderPushData() {
+        return JSONUtil.optWonderPushData(notification);
+    }
+
+}
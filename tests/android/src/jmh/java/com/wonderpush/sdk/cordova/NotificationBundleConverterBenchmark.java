@@ -0,0 +1,55 @@
+package com.wonderpush.sdk.cordova;
+
+import android.os.Bundle;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts the extras of a push notification intent to JSON, with and without a message id to cache the result by.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NotificationBundleConverterBenchmark {
+
+    private final NotificationBundleConverter converter = new NotificationBundleConverter();
+    private Bundle extras;
+    private Bundle extrasWithMessageId;
+
+    @Setup
+    public void setUp() {
+        extras = new Bundle();
+        extras.putString("_wp", "{\"c\":\"campaignId\",\"n\":\"notificationId\",\"receipt\":false,\"type\":\"simple\",\"alert\":{\"title\":\"Title\",\"text\":\"Text\"}}");
+        extras.putString("alert", "Hello");
+        extras.putString("google.sent_time", "1700000000000");
+        extras.putInt("priority", 1);
+        extrasWithMessageId = new Bundle(extras);
+        extrasWithMessageId.putString("google.message_id", "0:1700000000000000%abcdef");
+    }
+
+    @Benchmark
+    public JSONObject convert() {
+        return converter.convert(extras);
+    }
+
+    @Benchmark
+    public JSONObject convertCached() {
+        return converter.convert(extrasWithMessageId);
+    }
+
+}
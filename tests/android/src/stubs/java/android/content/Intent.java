@@ -0,0 +1,72 @@
+package android.content;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Parcelable;
+
+/**
+ * Holds an action, data and extras, without parceling.
+ */
+public class Intent implements Parcelable {
+
+    private String action;
+    private Uri data;
+    private Bundle extras;
+
+    public Intent() {
+    }
+
+    public Intent(String action) {
+        this.action = action;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public Intent setAction(String action) {
+        this.action = action;
+        return this;
+    }
+
+    public Uri getData() {
+        return data;
+    }
+
+    public Intent setData(Uri data) {
+        this.data = data;
+        return this;
+    }
+
+    public Bundle getExtras() {
+        return extras == null ? null : new Bundle(extras);
+    }
+
+    public Intent putExtras(Bundle extras) {
+        if (this.extras == null) this.extras = new Bundle();
+        this.extras.putAll(extras);
+        return this;
+    }
+
+    public Intent putExtra(String name, String value) {
+        if (extras == null) extras = new Bundle();
+        extras.putString(name, value);
+        return this;
+    }
+
+    public Intent putExtra(String name, Parcelable value) {
+        if (extras == null) extras = new Bundle();
+        extras.putParcelable(name, value);
+        return this;
+    }
+
+    public String getStringExtra(String name) {
+        return extras == null ? null : extras.getString(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Parcelable> T getParcelableExtra(String name) {
+        return extras == null ? null : (T) extras.getParcelable(name);
+    }
+
+}
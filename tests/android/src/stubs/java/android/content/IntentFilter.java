@@ -0,0 +1,34 @@
+package android.content;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Matches intents on their action only.
+ */
+public class IntentFilter {
+
+    private final List<String> actions = new ArrayList<>();
+
+    public IntentFilter() {
+    }
+
+    public IntentFilter(String action) {
+        addAction(action);
+    }
+
+    public final void addAction(String action) {
+        actions.add(action);
+    }
+
+    public final void addDataScheme(String scheme) {
+    }
+
+    public final void addDataAuthority(String host, String port) {
+    }
+
+    public final boolean hasAction(String action) {
+        return action != null && actions.contains(action);
+    }
+
+}
@@ -0,0 +1,9 @@
+package android.content.pm;
+
+import android.os.Bundle;
+
+public class ApplicationInfo {
+
+    public Bundle metaData;
+
+}
@@ -0,0 +1,18 @@
+package android.content.pm;
+
+public abstract class PackageManager {
+
+    public static final int GET_META_DATA = 0x00000080;
+
+    public static class NameNotFoundException extends Exception {
+        public NameNotFoundException() {
+        }
+
+        public NameNotFoundException(String name) {
+            super(name);
+        }
+    }
+
+    public abstract ApplicationInfo getApplicationInfo(String packageName, int flags) throws NameNotFoundException;
+
+}
@@ -0,0 +1,35 @@
+package android.net;
+
+/**
+ * Keeps the parsed string as is.
+ */
+public abstract class Uri {
+
+    public static Uri parse(final String uriString) {
+        return new Uri() {
+            @Override
+            public String getScheme() {
+                int colon = uriString.indexOf(':');
+                return colon < 0 ? null : uriString.substring(0, colon);
+            }
+
+            @Override
+            public String toString() {
+                return uriString;
+            }
+        };
+    }
+
+    public abstract String getScheme();
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Uri && toString().equals(o.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+}
@@ -0,0 +1,49 @@
+package android.os;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs posted callbacks on a single daemon thread standing for the main thread, whatever the looper.
+ */
+public class Handler {
+
+    private static volatile Thread mainThread;
+    private static final ScheduledThreadPoolExecutor mainExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "main");
+            thread.setDaemon(true);
+            mainThread = thread;
+            return thread;
+        }
+    });
+
+    static boolean isMainThread() {
+        return Thread.currentThread() == mainThread;
+    }
+
+    private final Map<Runnable, ScheduledFuture<?>> pending = new WeakHashMap<>();
+
+    public Handler(Looper looper) {
+    }
+
+    public final boolean post(Runnable r) {
+        return postDelayed(r, 0);
+    }
+
+    public final synchronized boolean postDelayed(final Runnable r, long delayMillis) {
+        pending.put(r, mainExecutor.schedule(r, Math.max(0, delayMillis), TimeUnit.MILLISECONDS));
+        return true;
+    }
+
+    public final synchronized void removeCallbacks(Runnable r) {
+        ScheduledFuture<?> future = pending.remove(r);
+        if (future != null) future.cancel(false);
+    }
+
+}
@@ -0,0 +1,21 @@
+package android.os;
+
+/**
+ * The main looper is a single daemon thread, see {@link Handler}.
+ */
+public final class Looper {
+
+    private static final Looper mainLooper = new Looper();
+
+    private Looper() {
+    }
+
+    public static Looper getMainLooper() {
+        return mainLooper;
+    }
+
+    public static Looper myLooper() {
+        return Handler.isMainThread() ? mainLooper : null;
+    }
+
+}
@@ -0,0 +1,29 @@
+package android.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Backed by a map.
+ */
+public class LongSparseArray<E> {
+
+    private final Map<Long, E> map = new HashMap<>();
+
+    public E get(long key) {
+        return map.get(key);
+    }
+
+    public void put(long key, E value) {
+        map.put(key, value);
+    }
+
+    public void remove(long key) {
+        map.remove(key);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+}
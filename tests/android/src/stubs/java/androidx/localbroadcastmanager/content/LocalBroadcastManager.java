@@ -0,0 +1,64 @@
+package androidx.localbroadcastmanager.content;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One per process, delivering broadcasts on the main thread to the receivers registered for their action.
+ */
+public final class LocalBroadcastManager {
+
+    private static final LocalBroadcastManager instance = new LocalBroadcastManager();
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<BroadcastReceiver> receivers = new ArrayList<>();
+    private final List<IntentFilter> filters = new ArrayList<>();
+
+    private LocalBroadcastManager() {
+    }
+
+    public static LocalBroadcastManager getInstance(Context context) {
+        return instance;
+    }
+
+    public synchronized void registerReceiver(BroadcastReceiver receiver, IntentFilter filter) {
+        receivers.add(receiver);
+        filters.add(filter);
+    }
+
+    public synchronized void unregisterReceiver(BroadcastReceiver receiver) {
+        int index;
+        while ((index = receivers.indexOf(receiver)) >= 0) {
+            receivers.remove(index);
+            filters.remove(index);
+        }
+    }
+
+    public boolean sendBroadcast(final Intent intent) {
+        final List<BroadcastReceiver> matching = new ArrayList<>();
+        synchronized (this) {
+            for (int i = 0; i < receivers.size(); ++i) {
+                if (filters.get(i).hasAction(intent.getAction())) {
+                    matching.add(receivers.get(i));
+                }
+            }
+        }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (BroadcastReceiver receiver : matching) {
+                    receiver.onReceive(null, intent);
+                }
+            }
+        });
+        return !matching.isEmpty();
+    }
+
+}
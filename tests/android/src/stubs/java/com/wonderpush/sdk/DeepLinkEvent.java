@@ -0,0 +1,23 @@
+package com.wonderpush.sdk;
+
+import android.content.Context;
+
+public class DeepLinkEvent {
+
+    private final Context context;
+    private final String url;
+
+    public DeepLinkEvent(Context context, String url) {
+        this.context = context;
+        this.url = url;
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+}
@@ -0,0 +1,349 @@
+package com.wonderpush.sdk;
+
+import android.content.Context;
+import android.location.Location;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the installation state in memory, and records the mutating calls made.
+ */
+public class WonderPush {
+
+    public static final String INTENT_NOTIFICATION_WILL_OPEN = "wonderpushNotificationWillOpen";
+    public static final String INTENT_NOTIFICATION_WILL_OPEN_EXTRA_RECEIVED_PUSH_NOTIFICATION = "wonderpushReceivedPushNotification";
+    public static final String INTENT_NOTIFICATION_WILL_OPEN_EXTRA_NOTIFICATION_TYPE = "wonderpushNotificationType";
+    public static final String INTENT_NOTIFICATION_BUTTON_ACTION_METHOD_ACTION = "com.wonderpush.action.method";
+    public static final String INTENT_NOTIFICATION_BUTTON_ACTION_METHOD_SCHEME = "wonderpush";
+    public static final String INTENT_NOTIFICATION_BUTTON_ACTION_METHOD_AUTHORITY = "action.method";
+    public static final String INTENT_NOTIFICATION_BUTTON_ACTION_METHOD_EXTRA_METHOD = "com.wonderpush.action.method.extra_method";
+    public static final String INTENT_NOTIFICATION_BUTTON_ACTION_METHOD_EXTRA_ARG = "com.wonderpush.action.method.extra_arg";
+
+    private static final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+    private static volatile boolean initialized;
+    private static volatile boolean userConsent;
+    private static volatile String userId;
+    private static volatile String country;
+    private static volatile String currency;
+    private static volatile String locale;
+    private static volatile String timeZone;
+    private static volatile boolean notificationEnabled;
+    private static volatile String rememberedClientId;
+    private static final Set<String> tags = new LinkedHashSet<>();
+    private static JSONObject properties = new JSONObject();
+
+    /**
+     * Forgets the calls made and the installation state.
+     */
+    public static synchronized void reset() {
+        calls.clear();
+        initialized = false;
+        userConsent = false;
+        userId = null;
+        country = null;
+        currency = null;
+        locale = null;
+        timeZone = null;
+        notificationEnabled = false;
+        rememberedClientId = null;
+        tags.clear();
+        properties = new JSONObject();
+    }
+
+    /**
+     * Returns the mutating calls made, as {@code "method"} or {@code "method arguments"}.
+     */
+    public static List<String> getCalls() {
+        synchronized (calls) {
+            return new ArrayList<>(calls);
+        }
+    }
+
+    private static void record(String method, Object... args) {
+        StringBuilder sb = new StringBuilder(method);
+        for (Object arg : args) {
+            sb.append(' ').append(arg instanceof Object[] ? new JSONArray(Arrays.asList((Object[]) arg)) : arg);
+        }
+        calls.add(sb.toString());
+    }
+
+    public static void setIntegrator(String integrator) {
+    }
+
+    public static void setLogging(boolean enable) {
+    }
+
+    public static void initialize(Context context, String clientId, String clientSecret) {
+        record("initialize", clientId, clientSecret);
+        initialized = true;
+    }
+
+    public static void initializeAndRememberCredentials(Context context, String clientId, String clientSecret) {
+        record("initializeAndRememberCredentials", clientId, clientSecret);
+        // A null credential is forgotten, and the SDK is not initialized
+        rememberedClientId = clientId;
+        initialized = clientId != null && clientSecret != null;
+    }
+
+    public static String getRememberedClientId(Context context) {
+        return rememberedClientId;
+    }
+
+    public static boolean isInitialized() {
+        return initialized;
+    }
+
+    public static String getUserId() {
+        return userId;
+    }
+
+    public static void setUserId(String userId) {
+        record("setUserId", userId);
+        WonderPush.userId = userId;
+    }
+
+    public static String getInstallationId() {
+        return null;
+    }
+
+    public static String getDeviceId() {
+        return null;
+    }
+
+    public static String getPushToken() {
+        return null;
+    }
+
+    public static String getAccessToken() {
+        return null;
+    }
+
+    public static boolean getUserConsent() {
+        return userConsent;
+    }
+
+    public static void setUserConsent(boolean value) {
+        record("setUserConsent", value);
+        userConsent = value;
+    }
+
+    public static void subscribeToNotifications() {
+        record("subscribeToNotifications");
+        notificationEnabled = true;
+    }
+
+    public static void subscribeToNotifications(boolean fallbackToSettings) {
+        record("subscribeToNotifications", fallbackToSettings);
+        notificationEnabled = true;
+    }
+
+    public static void unsubscribeFromNotifications() {
+        record("unsubscribeFromNotifications");
+        notificationEnabled = false;
+    }
+
+    public static boolean isSubscribedToNotifications() {
+        return notificationEnabled;
+    }
+
+    public static boolean getNotificationEnabled() {
+        return notificationEnabled;
+    }
+
+    public static void setNotificationEnabled(boolean status) {
+        record("setNotificationEnabled", status);
+        notificationEnabled = status;
+    }
+
+    public static void trackEvent(String type) {
+        record("trackEvent", type);
+    }
+
+    public static void trackEvent(String type, JSONObject attributes) {
+        record("trackEvent", type, attributes);
+    }
+
+    public static void addTag(String... tag) {
+        record("addTag", (Object) tag);
+        synchronized (WonderPush.class) {
+            Collections.addAll(tags, tag);
+        }
+    }
+
+    public static void removeTag(String... tag) {
+        record("removeTag", (Object) tag);
+        synchronized (WonderPush.class) {
+            for (String item : tag) {
+                tags.remove(item);
+            }
+        }
+    }
+
+    public static void removeAllTags() {
+        record("removeAllTags");
+        synchronized (WonderPush.class) {
+            tags.clear();
+        }
+    }
+
+    public static synchronized Set<String> getTags() {
+        return new LinkedHashSet<>(tags);
+    }
+
+    public static synchronized boolean hasTag(String tag) {
+        return tags.contains(tag);
+    }
+
+    public static synchronized JSONObject getProperties() {
+        try {
+            return new JSONObject(properties.toString());
+        } catch (JSONException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    public static void putProperties(JSONObject diff) {
+        record("putProperties", diff);
+        synchronized (WonderPush.class) {
+            Iterator<String> it = diff.keys();
+            while (it.hasNext()) {
+                String field = it.next();
+                try {
+                    properties.put(field, diff.opt(field));
+                } catch (JSONException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        }
+    }
+
+    public static JSONObject getInstallationCustomProperties() {
+        return getProperties();
+    }
+
+    public static void putInstallationCustomProperties(JSONObject diff) {
+        putProperties(diff);
+    }
+
+    public static synchronized Object getPropertyValue(String field) {
+        Object value = properties.opt(field);
+        if (value instanceof JSONArray) {
+            value = ((JSONArray) value).length() == 0 ? null : ((JSONArray) value).opt(0);
+        }
+        return value == null ? JSONObject.NULL : value;
+    }
+
+    public static synchronized List<Object> getPropertyValues(String field) {
+        List<Object> rtn = new ArrayList<>();
+        Object value = properties.opt(field);
+        if (value instanceof JSONArray) {
+            for (int i = 0; i < ((JSONArray) value).length(); ++i) {
+                rtn.add(((JSONArray) value).opt(i));
+            }
+        } else if (value != null && value != JSONObject.NULL) {
+            rtn.add(value);
+        }
+        return rtn;
+    }
+
+    public static void setProperty(String field, Object value) {
+        record("setProperty", field, value);
+        synchronized (WonderPush.class) {
+            try {
+                properties.put(field, value == null ? JSONObject.NULL : value);
+            } catch (JSONException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    public static void unsetProperty(String field) {
+        record("unsetProperty", field);
+        synchronized (WonderPush.class) {
+            properties.remove(field);
+        }
+    }
+
+    public static void addProperty(String field, Object value) {
+        record("addProperty", field, value);
+    }
+
+    public static void removeProperty(String field, Object value) {
+        record("removeProperty", field, value);
+    }
+
+    public static String getCountry() {
+        return country;
+    }
+
+    public static void setCountry(String country) {
+        record("setCountry", country);
+        WonderPush.country = country;
+    }
+
+    public static String getCurrency() {
+        return currency;
+    }
+
+    public static void setCurrency(String currency) {
+        record("setCurrency", currency);
+        WonderPush.currency = currency;
+    }
+
+    public static String getLocale() {
+        return locale;
+    }
+
+    public static void setLocale(String locale) {
+        record("setLocale", locale);
+        WonderPush.locale = locale;
+    }
+
+    public static String getTimeZone() {
+        return timeZone;
+    }
+
+    public static void setTimeZone(String timeZone) {
+        record("setTimeZone", timeZone);
+        WonderPush.timeZone = timeZone;
+    }
+
+    public static void enableGeolocation() {
+        record("enableGeolocation");
+    }
+
+    public static void disableGeolocation() {
+        record("disableGeolocation");
+    }
+
+    public static void setGeolocation(Location location) {
+        record("setGeolocation", location == null ? null : location.getLatitude() + "," + location.getLongitude());
+    }
+
+    public static void clearEventsHistory() {
+        record("clearEventsHistory");
+    }
+
+    public static void clearPreferences() {
+        record("clearPreferences");
+    }
+
+    public static void clearAllData() {
+        record("clearAllData");
+    }
+
+    public static void downloadAllData() {
+        record("downloadAllData");
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.wonderpush.sdk;
+
+import android.net.Uri;
+
+public class WonderPushChannel {
+
+    private final String id;
+    private String groupId;
+    private String name;
+    private String description;
+    private Boolean bypassDnd;
+    private Boolean showBadge;
+    private Integer importance;
+    private Boolean lights;
+    private Boolean vibrate;
+    private long[] vibrationPattern;
+    private Integer lightColor;
+    private Integer lockscreenVisibility;
+    private Boolean sound;
+    private Uri soundUri;
+    private Boolean vibrateInSilentMode;
+    private Integer color;
+    private Boolean localOnly;
+
+    public WonderPushChannel(String id, String groupId) {
+        this.id = id;
+        this.groupId = groupId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public WonderPushChannel setGroupId(String groupId) {
+        this.groupId = groupId;
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public WonderPushChannel setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public WonderPushChannel setDescription(String description) {
+        this.description = description;
+        return this;
+    }
+
+    public Boolean getBypassDnd() {
+        return bypassDnd;
+    }
+
+    public WonderPushChannel setBypassDnd(Boolean bypassDnd) {
+        this.bypassDnd = bypassDnd;
+        return this;
+    }
+
+    public Boolean getShowBadge() {
+        return showBadge;
+    }
+
+    public WonderPushChannel setShowBadge(Boolean showBadge) {
+        this.showBadge = showBadge;
+        return this;
+    }
+
+    public Integer getImportance() {
+        return importance;
+    }
+
+    public WonderPushChannel setImportance(Integer importance) {
+        this.importance = importance;
+        return this;
+    }
+
+    public Boolean getLights() {
+        return lights;
+    }
+
+    public WonderPushChannel setLights(Boolean lights) {
+        this.lights = lights;
+        return this;
+    }
+
+    public Boolean getVibrate() {
+        return vibrate;
+    }
+
+    public WonderPushChannel setVibrate(Boolean vibrate) {
+        this.vibrate = vibrate;
+        return this;
+    }
+
+    public long[] getVibrationPattern() {
+        return vibrationPattern;
+    }
+
+    public WonderPushChannel setVibrationPattern(long[] vibrationPattern) {
+        this.vibrationPattern = vibrationPattern;
+        return this;
+    }
+
+    public Integer getLightColor() {
+        return lightColor;
+    }
+
+    public WonderPushChannel setLightColor(Integer lightColor) {
+        this.lightColor = lightColor;
+        return this;
+    }
+
+    public Integer getLockscreenVisibility() {
+        return lockscreenVisibility;
+    }
+
+    public WonderPushChannel setLockscreenVisibility(Integer lockscreenVisibility) {
+        this.lockscreenVisibility = lockscreenVisibility;
+        return this;
+    }
+
+    public Boolean getSound() {
+        return sound;
+    }
+
+    public WonderPushChannel setSound(Boolean sound) {
+        this.sound = sound;
+        return this;
+    }
+
+    public Uri getSoundUri() {
+        return soundUri;
+    }
+
+    public WonderPushChannel setSoundUri(Uri soundUri) {
+        this.soundUri = soundUri;
+        return this;
+    }
+
+    public Boolean getVibrateInSilentMode() {
+        return vibrateInSilentMode;
+    }
+
+    public WonderPushChannel setVibrateInSilentMode(Boolean vibrateInSilentMode) {
+        this.vibrateInSilentMode = vibrateInSilentMode;
+        return this;
+    }
+
+    public Integer getColor() {
+        return color;
+    }
+
+    public WonderPushChannel setColor(Integer color) {
+        this.color = color;
+        return this;
+    }
+
+    public Boolean getLocalOnly() {
+        return localOnly;
+    }
+
+    public WonderPushChannel setLocalOnly(Boolean localOnly) {
+        this.localOnly = localOnly;
+        return this;
+    }
+
+}
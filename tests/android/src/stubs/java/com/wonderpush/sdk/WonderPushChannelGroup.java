@@ -0,0 +1,25 @@
+package com.wonderpush.sdk;
+
+public class WonderPushChannelGroup {
+
+    private final String id;
+    private String name;
+
+    public WonderPushChannelGroup(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public WonderPushChannelGroup setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+}
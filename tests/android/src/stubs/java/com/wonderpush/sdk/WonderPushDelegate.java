@@ -0,0 +1,18 @@
+package com.wonderpush.sdk;
+
+import android.content.Context;
+
+import org.json.JSONObject;
+
+public interface WonderPushDelegate {
+
+    default void setContext(Context context) {
+    }
+
+    String urlForDeepLink(DeepLinkEvent event);
+
+    void onNotificationOpened(JSONObject notif, int buttonIndex);
+
+    void onNotificationReceived(JSONObject notif);
+
+}
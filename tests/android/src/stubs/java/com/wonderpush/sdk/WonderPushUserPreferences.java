@@ -0,0 +1,89 @@
+package com.wonderpush.sdk;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the channels and channel groups in memory, and records the mutating calls made.
+ */
+public class WonderPushUserPreferences {
+
+    private static final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+    private static String defaultChannelId;
+    private static final Map<String, WonderPushChannelGroup> channelGroups = new LinkedHashMap<>();
+    private static final Map<String, WonderPushChannel> channels = new LinkedHashMap<>();
+
+    public static synchronized void reset() {
+        calls.clear();
+        defaultChannelId = null;
+        channelGroups.clear();
+        channels.clear();
+    }
+
+    /**
+     * Returns the mutating calls made, as {@code "method"} or {@code "method id"}.
+     */
+    public static List<String> getCalls() {
+        synchronized (calls) {
+            return new ArrayList<>(calls);
+        }
+    }
+
+    public static synchronized String getDefaultChannelId() {
+        return defaultChannelId;
+    }
+
+    public static synchronized void setDefaultChannelId(String id) {
+        calls.add("setDefaultChannelId " + id);
+        defaultChannelId = id;
+    }
+
+    public static synchronized WonderPushChannelGroup getChannelGroup(String groupId) {
+        return channelGroups.get(groupId);
+    }
+
+    public static synchronized void removeChannelGroup(String groupId) {
+        calls.add("removeChannelGroup " + groupId);
+        channelGroups.remove(groupId);
+    }
+
+    public static synchronized void putChannelGroup(WonderPushChannelGroup channelGroup) {
+        calls.add("putChannelGroup " + channelGroup.getId());
+        channelGroups.put(channelGroup.getId(), channelGroup);
+    }
+
+    public static synchronized void setChannelGroups(Collection<WonderPushChannelGroup> channelGroups) {
+        calls.add("setChannelGroups");
+        WonderPushUserPreferences.channelGroups.clear();
+        for (WonderPushChannelGroup channelGroup : channelGroups) {
+            WonderPushUserPreferences.channelGroups.put(channelGroup.getId(), channelGroup);
+        }
+    }
+
+    public static synchronized WonderPushChannel getChannel(String channelId) {
+        return channels.get(channelId);
+    }
+
+    public static synchronized void removeChannel(String channelId) {
+        calls.add("removeChannel " + channelId);
+        channels.remove(channelId);
+    }
+
+    public static synchronized void putChannel(WonderPushChannel channel) {
+        calls.add("putChannel " + channel.getId());
+        channels.put(channel.getId(), channel);
+    }
+
+    public static synchronized void setChannels(Collection<WonderPushChannel> channels) {
+        calls.add("setChannels");
+        WonderPushUserPreferences.channels.clear();
+        for (WonderPushChannel channel : channels) {
+            WonderPushUserPreferences.channels.put(channel.getId(), channel);
+        }
+    }
+
+}
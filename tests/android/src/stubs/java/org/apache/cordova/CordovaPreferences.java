@@ -0,0 +1,51 @@
+package org.apache.cordova;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The {@code <preference>} entries of config.xml, names being case insensitive.
+ */
+public class CordovaPreferences {
+
+    private final Map<String, String> prefs = new HashMap<>();
+
+    public void set(String name, String value) {
+        prefs.put(name.toLowerCase(Locale.ENGLISH), value);
+    }
+
+    public void set(String name, boolean value) {
+        set(name, String.valueOf(value));
+    }
+
+    public void set(String name, int value) {
+        set(name, String.valueOf(value));
+    }
+
+    public boolean contains(String name) {
+        return getString(name, null) != null;
+    }
+
+    public boolean getBoolean(String name, boolean defaultValue) {
+        String value = getString(name, null);
+        return value == null ? defaultValue : "true".equals(value);
+    }
+
+    public int getInteger(String name, int defaultValue) {
+        String value = getString(name, null);
+        // Like Cordova, also accepts hexadecimal colors
+        return value == null ? defaultValue : (int) (long) Long.decode(value);
+    }
+
+    public double getDouble(String name, double defaultValue) {
+        String value = getString(name, null);
+        return value == null ? defaultValue : Double.valueOf(value);
+    }
+
+    public String getString(String name, String defaultValue) {
+        String value = prefs.get(name.toLowerCase(Locale.ENGLISH));
+        return value == null ? defaultValue : value;
+    }
+
+}
@@ -0,0 +1,7 @@
+package org.apache.cordova;
+
+public interface CordovaWebView {
+
+    void sendPluginResult(PluginResult cr, String callbackId);
+
+}
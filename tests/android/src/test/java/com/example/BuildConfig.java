@@ -0,0 +1,22 @@
+package com.example;
+
+/**
+ * Stands for the BuildConfig of the app, in the package of {@code PluginFixture} contexts.
+ * Fields are {@code null} when build-extras.gradle would not add them.
+ */
+public final class BuildConfig {
+
+    public static Integer WONDERPUSH_SAVED_NOTIFICATIONS_CAPACITY;
+    public static String WONDERPUSH_SAVED_NOTIFICATIONS_OVERFLOW;
+    public static Boolean WONDERPUSH_SAVED_NOTIFICATIONS_JOURNAL;
+
+    private BuildConfig() {
+    }
+
+    public static void reset() {
+        WONDERPUSH_SAVED_NOTIFICATIONS_CAPACITY = null;
+        WONDERPUSH_SAVED_NOTIFICATIONS_OVERFLOW = null;
+        WONDERPUSH_SAVED_NOTIFICATIONS_JOURNAL = null;
+    }
+
+}
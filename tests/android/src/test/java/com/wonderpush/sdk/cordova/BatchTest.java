@@ -0,0 +1,143 @@
+package com.wonderpush.sdk.cordova;
+
+import com.wonderpush.sdk.WonderPush;
+
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BatchTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PluginFixture fixture;
+
+    @Before
+    public void setUp() {
+        WonderPush.reset();
+        fixture = new PluginFixture(folder.getRoot()).initialize();
+    }
+
+    @After
+    public void tearDown() {
+        fixture.destroy();
+    }
+
+    private static JSONObject call(String action, Object... args) throws JSONException {
+        JSONArray rawArgs = new JSONArray();
+        for (Object arg : args) {
+            rawArgs.put(arg);
+        }
+        return new JSONObject().put("action", action).put("args", rawArgs);
+    }
+
+    private JSONArray batch(JSONObject... calls) throws Exception {
+        JSONArray batch = new JSONArray();
+        for (JSONObject call : calls) {
+            batch.put(call);
+        }
+        return (JSONArray) fixture.call("__batch", batch).value();
+    }
+
+    @Test
+    public void resolvesNullResultsToNull() throws Exception {
+        JSONArray results = batch(call("getUserId"), call("getCountry"));
+        for (int i = 0; i < results.length(); ++i) {
+            JSONObject result = results.getJSONObject(i);
+            assertTrue(result.getBoolean("ok"));
+            assertTrue(result.has("value"));
+            assertEquals(JSONObject.NULL, result.get("value"));
+        }
+        // Like a call of its own
+        assertEquals(JSONObject.NULL, fixture.call("getUserId").value());
+    }
+
+    @Test
+    public void resolvesValuesLikeCallsOfTheirOwn() throws Exception {
+        JSONArray results = batch(
+                call("setUserId", "user"),
+                call("getUserId"),
+                call("setCountry", "FR"),
+                call("isInitialized"),
+                call("getTags"));
+        assertEquals("user", results.getJSONObject(1).get("value"));
+        assertEquals(Boolean.FALSE, results.getJSONObject(3).get("value"));
+        assertTrue(results.getJSONObject(4).get("value") instanceof JSONArray);
+    }
+
+    @Test
+    public void reportsErrorsPerCall() throws Exception {
+        JSONArray results = batch(call("setLogging", "not a boolean"), call("noSuchAction"), call("setUserId", "user"));
+        assertFalse(results.getJSONObject(0).getBoolean("ok"));
+        assertFalse(results.getJSONObject(1).getBoolean("ok"));
+        assertTrue(results.getJSONObject(2).getBoolean("ok"));
+    }
+
+    @Test
+    public void decodesEveryMessageType() throws JSONException {
+        assertEquals(JSONObject.NULL, WonderPushPlugin.batchedResultValue(null));
+        assertEquals(JSONObject.NULL, WonderPushPlugin.batchedResultValue(new PluginResult(PluginResult.Status.OK, (String) null)));
+        assertEquals("", WonderPushPlugin.batchedResultValue(new PluginResult(PluginResult.Status.OK, "")));
+        assertEquals("\"quoted\"", WonderPushPlugin.batchedResultValue(new PluginResult(PluginResult.Status.OK, "\"quoted\"")));
+        assertEquals(42, WonderPushPlugin.batchedResultValue(new PluginResult(PluginResult.Status.OK, 42)));
+        assertEquals(Boolean.TRUE, WonderPushPlugin.batchedResultValue(new PluginResult(PluginResult.Status.OK, true)));
+        assertEquals("{\"a\":1}", WonderPushPlugin.batchedResultValue(new PluginResult(PluginResult.Status.OK, new JSONObject().put("a", 1))).toString());
+        assertEquals("No result", WonderPushPlugin.batchedResultValue(new PluginResult(PluginResult.Status.NO_RESULT)));
+    }
+
+    @Test
+    public void appliesTheFlushRuleOfEachBatchedCall() throws Exception {
+        fixture.call("setPropertiesCoalescingWindow", 60000).value();
+        fixture.call("setProperty", "string_a", "x").value();
+        batch(call("setProperty", "string_b", "y"));
+        assertTrue(WonderPush.getCalls().isEmpty());
+
+        batch(call("setProperty", "string_c", "z"), call("trackEvent", "e"));
+        List<String> calls = WonderPush.getCalls();
+        assertEquals(2, calls.size());
+        assertTrue(calls.get(0).startsWith("putProperties "));
+        assertEquals(3, WonderPush.getProperties().length());
+        assertTrue(calls.get(1).startsWith("trackEvent e"));
+    }
+
+    @Test
+    public void keepsTheInstallationCacheForReadOnlyBatches() throws Exception {
+        assertEquals(0, ((JSONArray) fixture.call("getTags").value()).length());
+        // Changed behind the plugin's back, only visible once the cache is invalidated
+        WonderPush.addTag("a");
+        JSONObject result = batch(call("getTags")).getJSONObject(0);
+        assertEquals(0, result.getJSONArray("value").length());
+        result = batch(call("addTag", "b"), call("getTags")).getJSONObject(1);
+        assertEquals(2, result.getJSONArray("value").length());
+    }
+
+    @Test
+    public void runsEachCallOnTheThreadOfItsAction() throws Exception {
+        fixture.call("resetMetrics").value();
+        JSONArray results = batch(call("downloadAllData"), call("setUserId", "u"), call("getUserId"), call("getMetrics"));
+        assertTrue(results.getJSONObject(0).getBoolean("ok"));
+        assertEquals("u", results.getJSONObject(2).get("value"));
+        // getMetrics runs inline, before the queued calls
+        JSONObject queueWaitUs = results.getJSONObject(3).getJSONObject("value").getJSONObject("queueWaitUs");
+        assertEquals(0, queueWaitUs.getJSONObject("serial").getLong("count"));
+
+        queueWaitUs = ((JSONObject) fixture.call("getMetrics").value()).getJSONObject("queueWaitUs");
+        assertEquals(1, queueWaitUs.getJSONObject("pool").getLong("count"));
+        assertEquals(2, queueWaitUs.getJSONObject("serial").getLong("count"));
+        assertTrue(WonderPush.getCalls().contains("downloadAllData"));
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.wonderpush.sdk.cordova;
+
+import android.net.Uri;
+
+import com.wonderpush.sdk.WonderPushChannel;
+import com.wonderpush.sdk.WonderPushChannelGroup;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ChannelCodecsTest {
+
+    // The hand-written serializers the codecs replaced, kept as a reference
+
+    private static JSONObject baselineSerializeChannelGroup(WonderPushChannelGroup group) throws JSONException {
+        JSONObject rtn = new JSONObject();
+        rtn.putOpt("id", group.getId());
+        rtn.putOpt("name", group.getName());
+        return rtn;
+    }
+
+    private static JSONObject baselineSerializeChannel(WonderPushChannel channel) throws JSONException {
+        JSONObject rtn = new JSONObject();
+        rtn.putOpt("bypassDnd", channel.getBypassDnd());
+        rtn.putOpt("color", channel.getColor());
+        rtn.putOpt("description", channel.getDescription());
+        rtn.putOpt("groupId", channel.getGroupId());
+        rtn.putOpt("id", channel.getId());
+        rtn.putOpt("importance", channel.getImportance());
+        rtn.putOpt("lightColor", channel.getLightColor());
+        rtn.putOpt("lights", channel.getLights());
+        rtn.putOpt("localOnly", channel.getLocalOnly());
+        rtn.putOpt("lockscreenVisibility", channel.getLockscreenVisibility());
+        rtn.putOpt("name", channel.getName());
+        rtn.putOpt("showBadge", channel.getShowBadge());
+        rtn.putOpt("sound", channel.getSound());
+        rtn.putOpt("soundUri", channel.getSoundUri() == null ? null : channel.getSoundUri().toString());
+        rtn.putOpt("vibrate", channel.getVibrate());
+        rtn.putOpt("vibrateInSilentMode", channel.getVibrateInSilentMode());
+        rtn.putOpt("vibrationPattern", JSONUtil.wrap(channel.getVibrationPattern()));
+        return rtn;
+    }
+
+    private static WonderPushChannel fullChannel() {
+        return new WonderPushChannel("channel", "group")
+                .setName("Name")
+                .setDescription("Description")
+                .setBypassDnd(true)
+                .setShowBadge(false)
+                .setImportance(4)
+                .setLights(true)
+                .setVibrate(true)
+                .setVibrationPattern(new long[] {0, 100, 200})
+                .setLightColor(0xff00ff00)
+                .setLockscreenVisibility(-1)
+                .setSound(true)
+                .setSoundUri(Uri.parse("android.resource://com.example/raw/sound"))
+                .setVibrateInSilentMode(false)
+                .setColor(0xffff0000)
+                .setLocalOnly(true);
+    }
+
+    private static void assertSameJSON(JSONObject expected, JSONObject actual) {
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    public void encodesChannelsLikeTheBaseline() throws JSONException {
+        WonderPushChannel channel = fullChannel();
+        assertSameJSON(baselineSerializeChannel(channel), ChannelCodecs.CHANNEL.encode(channel));
+    }
+
+    @Test
+    public void encodesAMissingVibrationPatternAsAnExplicitNull() throws JSONException {
+        WonderPushChannel channel = new WonderPushChannel("channel", null);
+        JSONObject json = ChannelCodecs.CHANNEL.encode(channel);
+        assertSameJSON(baselineSerializeChannel(channel), json);
+        assertEquals(2, json.length());
+        assertEquals(JSONObject.NULL, json.get("vibrationPattern"));
+    }
+
+    @Test
+    public void encodesChannelGroupsLikeTheBaseline() throws JSONException {
+        WonderPushChannelGroup group = new WonderPushChannelGroup("group").setName("Name");
+        assertSameJSON(baselineSerializeChannelGroup(group), ChannelCodecs.CHANNEL_GROUP.encode(group));
+        group = new WonderPushChannelGroup("group");
+        assertSameJSON(baselineSerializeChannelGroup(group), ChannelCodecs.CHANNEL_GROUP.encode(group));
+    }
+
+    @Test
+    public void roundTripsChannels() throws JSONException {
+        JSONObject json = ChannelCodecs.CHANNEL.encode(fullChannel());
+        WonderPushChannel decoded = ChannelCodecs.CHANNEL.decode(json);
+        assertSameJSON(json, ChannelCodecs.CHANNEL.encode(decoded));
+        assertArrayEquals(new long[] {0, 100, 200}, decoded.getVibrationPattern());
+        assertEquals("group", decoded.getGroupId());
+    }
+
+    @Test
+    public void readsValuesOfAnUnexpectedTypeAsNull() throws JSONException {
+        JSONObject json = new JSONObject()
+                .put("id", "channel")
+                .put("name", 42)
+                .put("bypassDnd", "yes")
+                .put("importance", 3.7)
+                .put("vibrationPattern", new JSONArray().put(1).put("two"));
+        WonderPushChannel decoded = ChannelCodecs.CHANNEL.decode(json);
+        assertNull(decoded.getName());
+        assertNull(decoded.getBypassDnd());
+        assertEquals(Integer.valueOf(3), decoded.getImportance());
+        assertNull(decoded.getVibrationPattern());
+        assertNull(decoded.getGroupId());
+    }
+
+    @Test(expected = JSONException.class)
+    public void requiresAnId() throws JSONException {
+        ChannelCodecs.CHANNEL.decode(new JSONObject().put("name", "Name"));
+    }
+
+}
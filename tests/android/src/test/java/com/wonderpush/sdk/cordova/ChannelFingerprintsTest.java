@@ -0,0 +1,71 @@
+package com.wonderpush.sdk.cordova;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChannelFingerprintsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ChannelFingerprints fingerprints;
+
+    @Before
+    public void setUp() {
+        fingerprints = new ChannelFingerprints(new PluginFixture(folder.getRoot()).getContext());
+    }
+
+    private static JSONObject channel(String id, String name) throws JSONException {
+        return new JSONObject().put("id", id).put("name", name);
+    }
+
+    private ChannelFingerprints.Diff apply(JSONObject... channels) {
+        ChannelFingerprints.Diff diff = fingerprints.diff(ChannelFingerprints.CHANNELS, new JSONArray(Arrays.asList(channels)));
+        fingerprints.commit(ChannelFingerprints.CHANNELS, diff);
+        return diff;
+    }
+
+    private static void assertDiff(String put, String removed, ChannelFingerprints.Diff diff) throws JSONException {
+        JSONObject json = diff.toJSON();
+        assertEquals(put, json.getJSONArray("put").toString());
+        assertEquals(removed, json.getJSONArray("removed").toString());
+    }
+
+    @Test
+    public void onlyPutsWhatChanged() throws JSONException {
+        assertTrue(apply(channel("a", "A"), channel("b", "B")).full);
+        ChannelFingerprints.Diff diff = apply(channel("a", "A"), channel("b", "B2"), channel("c", "C"));
+        assertFalse(diff.full);
+        assertDiff("[\"b\",\"c\"]", "[]", diff);
+        diff = apply(channel("c", "C"));
+        assertDiff("[]", "[\"a\",\"b\"]", diff);
+    }
+
+    @Test
+    public void keepsThePreviousFingerprintOfSkippedEntries() throws JSONException {
+        apply(channel("a", "A"), channel("b", "B"));
+        JSONObject changed = channel("a", "A2");
+        JSONObject added = channel("c", "C");
+        ChannelFingerprints.Diff diff = fingerprints.diff(ChannelFingerprints.CHANNELS, new JSONArray().put(changed).put(channel("b", "B")).put(added));
+        diff.skip(changed);
+        diff.skip(added);
+        fingerprints.commit(ChannelFingerprints.CHANNELS, diff);
+        assertDiff("[]", "[]", diff);
+
+        // The previous configuration is still what was applied, the skipped entries are put again
+        assertDiff("[]", "[]", apply(channel("a", "A"), channel("b", "B")));
+        assertDiff("[\"a\",\"c\"]", "[]", apply(changed, channel("b", "B"), added));
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.wonderpush.sdk.cordova;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DedupFilterTest {
+
+    @Test
+    public void suppressesDuplicatesWithinTheWindow() {
+        DedupFilter filter = new DedupFilter(2000);
+        assertFalse(filter.isDuplicate("open:c1:n1", 10000));
+        assertTrue(filter.isDuplicate("open:c1:n1", 11999));
+        assertFalse(filter.isDuplicate("open:c1:n2", 11999));
+    }
+
+    @Test
+    public void forgetsKeysOnceTheWindowIsOver() {
+        DedupFilter filter = new DedupFilter(2000);
+        assertFalse(filter.isDuplicate("open:c1:n1", 10000));
+        assertFalse(filter.isDuplicate("open:c1:n1", 12000));
+        // Seen again at 12000, so the window starts over
+        assertTrue(filter.isDuplicate("open:c1:n1", 13000));
+    }
+
+    @Test
+    public void neverFiltersNullKeys() {
+        DedupFilter filter = new DedupFilter(2000);
+        assertFalse(filter.isDuplicate(null, 10000));
+        assertFalse(filter.isDuplicate(null, 10000));
+    }
+
+    @Test
+    public void zeroWindowDisablesFiltering() {
+        DedupFilter filter = new DedupFilter(0);
+        assertFalse(filter.isDuplicate("key", 10000));
+        assertFalse(filter.isDuplicate("key", 10000));
+    }
+
+    @Test
+    public void reusesTheOldestSlotOnceFull() {
+        DedupFilter filter = new DedupFilter(2000);
+        for (int i = 0; i <= DedupFilter.CAPACITY; ++i) {
+            assertFalse(filter.isDuplicate("key" + i, 10000));
+        }
+        // key0 was evicted by the last key, the others are still remembered
+        assertFalse(filter.isDuplicate("key0", 10000));
+        assertTrue(filter.isDuplicate("key" + DedupFilter.CAPACITY, 10000));
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.wonderpush.sdk.cordova;
+
+import com.example.BuildConfig;
+import com.wonderpush.sdk.DeepLinkEvent;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+public class DelegateConfigTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PluginFixture fixture;
+    private final Delegate delegate = new Delegate();
+
+    @Before
+    public void setUp() {
+        BuildConfig.reset();
+        fixture = new PluginFixture(folder.getRoot());
+    }
+
+    @After
+    public void tearDown() {
+        BuildConfig.reset();
+        fixture.metaData.remove(Delegate.METADATA_SAVED_NOTIFICATIONS_CAPACITY);
+        // Back to the defaults for the other tests
+        delegate.setContext(fixture.getContext());
+        drainSavedNotifications();
+        fixture.destroy();
+    }
+
+    private static void drainSavedNotifications() {
+        Delegate.SubDelegate subDelegate = new Delegate.SubDelegate() {
+            @Override public boolean subDelegateIsReady() { return true; }
+            @Override public boolean subDelegateHasUrlForDeepLink() { return false; }
+            @Override public void forwardNotificationOpened(JSONObject payload, JSONObject notif, int buttonIndex) {}
+            @Override public void forwardNotificationReceived(JSONObject payload, JSONObject notif) {}
+            @Override public String urlForDeepLink(DeepLinkEvent event) { return event.getUrl(); }
+            @Override public void onNotificationOpened(JSONObject notif, int buttonIndex) {}
+            @Override public void onNotificationReceived(JSONObject notif) {}
+        };
+        Delegate.addSubDelegate(subDelegate);
+        Delegate.replaySavedNotifications();
+        Delegate.removeSubDelegate(subDelegate);
+    }
+
+    private void receive(int count) throws JSONException {
+        for (int i = 0; i < count; ++i) {
+            delegate.onNotificationReceived(new JSONObject().put("id", String.valueOf(i)));
+        }
+    }
+
+    @Test
+    public void readsTheBuildConfig() throws JSONException {
+        BuildConfig.WONDERPUSH_SAVED_NOTIFICATIONS_CAPACITY = 2;
+        fixture.metaData.putString(Delegate.METADATA_SAVED_NOTIFICATIONS_CAPACITY, "3");
+        delegate.setContext(fixture.getContext());
+        receive(5);
+        assertEquals(2, Delegate.getSavedNotificationsCount());
+    }
+
+    @Test
+    public void fallsBackToTheMetaData() throws JSONException {
+        fixture.metaData.putString(Delegate.METADATA_SAVED_NOTIFICATIONS_CAPACITY, "3");
+        delegate.setContext(fixture.getContext());
+        receive(5);
+        assertEquals(3, Delegate.getSavedNotificationsCount());
+    }
+
+    @Test
+    public void ignoresUnsubstitutedPluginVariables() throws JSONException {
+        fixture.metaData.putString(Delegate.METADATA_SAVED_NOTIFICATIONS_CAPACITY, "$SAVED_NOTIFICATIONS_CAPACITY");
+        delegate.setContext(fixture.getContext());
+        receive(5);
+        assertEquals(5, Delegate.getSavedNotificationsCount());
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.wonderpush.sdk.cordova;
+
+import android.content.Context;
+
+import com.wonderpush.sdk.DeepLinkEvent;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DelegateStressTest {
+
+    /**
+     * A sub delegate whose {@link #urlForDeepLink(DeepLinkEvent)} blocks until released, like one waiting on JavaScript.
+     */
+    static class BlockingSubDelegate implements Delegate.SubDelegate {
+        final CountDownLatch deepLinkEntered = new CountDownLatch(1);
+        final CountDownLatch releaseDeepLink = new CountDownLatch(1);
+        final AtomicInteger received = new AtomicInteger();
+        final List<String> receivedIds = new ArrayList<>();
+        volatile boolean ready = true;
+
+        @Override
+        public boolean subDelegateIsReady() {
+            return ready;
+        }
+
+        @Override
+        public boolean subDelegateHasUrlForDeepLink() {
+            return true;
+        }
+
+        @Override
+        public void forwardNotificationOpened(JSONObject payload, JSONObject notif, int buttonIndex) {
+        }
+
+        @Override
+        public void forwardNotificationReceived(JSONObject payload, JSONObject notif) {
+            received.incrementAndGet();
+            synchronized (receivedIds) {
+                receivedIds.add(notif.optString("id"));
+            }
+        }
+
+        @Override
+        public void setContext(Context context) {
+        }
+
+        @Override
+        public String urlForDeepLink(DeepLinkEvent event) {
+            deepLinkEntered.countDown();
+            try {
+                releaseDeepLink.await();
+            } catch (InterruptedException ignored) {
+            }
+            return null;
+        }
+
+        @Override
+        public void onNotificationOpened(JSONObject notif, int buttonIndex) {
+        }
+
+        @Override
+        public void onNotificationReceived(JSONObject notif) {
+        }
+    }
+
+    private final Delegate delegate = new Delegate();
+    private BlockingSubDelegate subDelegate;
+
+    @After
+    public void tearDown() {
+        if (subDelegate != null) {
+            subDelegate.releaseDeepLink.countDown();
+            Delegate.removeSubDelegate(subDelegate);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void notificationsAreNotBlockedByAPendingDeepLink() throws Exception {
+        subDelegate = new BlockingSubDelegate();
+        Delegate.addSubDelegate(subDelegate);
+
+        Thread deepLink = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                delegate.urlForDeepLink(null);
+            }
+        });
+        deepLink.start();
+        assertTrue(subDelegate.deepLinkEntered.await(5, TimeUnit.SECONDS));
+
+        final int threads = 8;
+        final int perThread = 500;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; ++t) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < perThread; ++i) {
+                            delegate.onNotificationReceived(new JSONObject().put("id", String.valueOf(i)));
+                        }
+                    } catch (InterruptedException | JSONException ex) {
+                        throw new RuntimeException(ex);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+
+        // Every notification goes through while the deep link is still pending
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(threads * perThread, subDelegate.received.get());
+        assertTrue(deepLink.isAlive());
+
+        subDelegate.releaseDeepLink.countDown();
+        deepLink.join();
+    }
+
+    @Test
+    public void replaysTheNotificationsSavedBeforeReadyInOrder() throws JSONException {
+        subDelegate = new BlockingSubDelegate();
+        subDelegate.ready = false;
+        Delegate.addSubDelegate(subDelegate);
+        for (int i = 0; i < 10; ++i) {
+            delegate.onNotificationReceived(new JSONObject().put("id", String.valueOf(i)));
+        }
+        assertEquals(0, subDelegate.received.get());
+        assertEquals(10, Delegate.getSavedNotificationsCount());
+
+        subDelegate.ready = true;
+        Delegate.replaySavedNotifications();
+        assertEquals(0, Delegate.getSavedNotificationsCount());
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            expected.add(String.valueOf(i));
+        }
+        assertEquals(expected, subDelegate.receivedIds);
+    }
+
+    @Test
+    public void replaysToAllTheReadySubDelegates() throws JSONException {
+        subDelegate = new BlockingSubDelegate();
+        subDelegate.ready = false;
+        BlockingSubDelegate other = new BlockingSubDelegate();
+        other.ready = false;
+        Delegate.addSubDelegate(subDelegate);
+        Delegate.addSubDelegate(other);
+        try {
+            for (int i = 0; i < 3; ++i) {
+                delegate.onNotificationReceived(new JSONObject().put("id", String.valueOf(i)));
+            }
+            subDelegate.ready = true;
+            other.ready = true;
+            Delegate.replaySavedNotifications();
+            assertEquals(Arrays.asList("0", "1", "2"), subDelegate.receivedIds);
+            assertEquals(Arrays.asList("0", "1", "2"), other.receivedIds);
+        } finally {
+            Delegate.removeSubDelegate(other);
+        }
+    }
+
+}
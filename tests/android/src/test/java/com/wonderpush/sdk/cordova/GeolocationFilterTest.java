@@ -0,0 +1,62 @@
+package com.wonderpush.sdk.cordova;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GeolocationFilterTest {
+
+    private static final double PARIS_LATITUDE = 48.8566;
+    private static final double PARIS_LONGITUDE = 2.3522;
+
+    @Test
+    public void acceptsEveryFixByDefault() {
+        GeolocationFilter filter = new GeolocationFilter();
+        assertTrue(filter.accept(PARIS_LATITUDE, PARIS_LONGITUDE, 0));
+        assertTrue(filter.accept(PARIS_LATITUDE, PARIS_LONGITUDE, 0));
+    }
+
+    @Test
+    public void dropsFixesTooCloseInDistanceAndTime() {
+        GeolocationFilter filter = new GeolocationFilter();
+        filter.setThresholds(100, 60000);
+        assertTrue(filter.accept(PARIS_LATITUDE, PARIS_LONGITUDE, 0));
+        // About 11 meters north, 1 second later
+        assertFalse(filter.accept(PARIS_LATITUDE + 0.0001, PARIS_LONGITUDE, 1000));
+        // About 1.1 kilometers north
+        assertTrue(filter.accept(PARIS_LATITUDE + 0.01, PARIS_LONGITUDE, 2000));
+        // Back close to the last reported fix, but the interval elapsed
+        assertTrue(filter.accept(PARIS_LATITUDE + 0.01, PARIS_LONGITUDE, 62000));
+    }
+
+    @Test
+    public void ignoresZeroThresholds() {
+        GeolocationFilter filter = new GeolocationFilter();
+        filter.setThresholds(0, 60000);
+        assertTrue(filter.accept(PARIS_LATITUDE, PARIS_LONGITUDE, 0));
+        // Moving does not matter without a minimum distance
+        assertFalse(filter.accept(PARIS_LATITUDE + 1, PARIS_LONGITUDE, 1000));
+        assertTrue(filter.accept(PARIS_LATITUDE + 1, PARIS_LONGITUDE, 60000));
+    }
+
+    @Test
+    public void acceptsTheNextFixAfterReset() {
+        GeolocationFilter filter = new GeolocationFilter();
+        filter.setThresholds(100, 60000);
+        assertTrue(filter.accept(PARIS_LATITUDE, PARIS_LONGITUDE, 0));
+        filter.reset();
+        assertTrue(filter.accept(PARIS_LATITUDE, PARIS_LONGITUDE, 1000));
+    }
+
+    @Test
+    public void computesGreatCircleDistances() {
+        assertEquals(0, GeolocationFilter.distanceMeters(PARIS_LATITUDE, PARIS_LONGITUDE, PARIS_LATITUDE, PARIS_LONGITUDE), 1e-6);
+        // Paris to London
+        assertEquals(343_500, GeolocationFilter.distanceMeters(PARIS_LATITUDE, PARIS_LONGITUDE, 51.5074, -0.1278), 1000);
+        // A quarter of the equator
+        assertEquals(10_007_557, GeolocationFilter.distanceMeters(0, 0, 0, 90), 10);
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.wonderpush.sdk.cordova;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.lang.reflect.Array;
+
+import static org.junit.Assert.assertEquals;
+
+public class JSONUtilTest {
+
+    /**
+     * The reflective implementation {@link JSONUtil#JSONArray(Object)} replaced, kept as a reference.
+     */
+    private static JSONArray baselineJSONArray(Object array) throws JSONException {
+        if (!array.getClass().isArray()) {
+            throw new JSONException("Not a primitive array: " + array.getClass());
+        }
+        final JSONArray rtn = new JSONArray();
+        final int length = Array.getLength(array);
+        for (int i = 0; i < length; ++i) {
+            rtn.put(JSONUtil.wrap(Array.get(array, i)));
+        }
+        return rtn;
+    }
+
+    private static void assertParity(Object array) throws JSONException {
+        assertEquals(baselineJSONArray(array).toString(), JSONUtil.JSONArray(array).toString());
+    }
+
+    @Test
+    public void serializesFloatsLikeTheBaseline() throws JSONException {
+        assertParity(new float[] {0.1f, 1.5f, -3f, Float.MIN_VALUE, Float.MAX_VALUE});
+        assertEquals("[0.1]", JSONUtil.JSONArray(new float[] {0.1f}).toString());
+    }
+
+    @Test
+    public void serializesPrimitiveArraysLikeTheBaseline() throws JSONException {
+        assertParity(new long[] {0, 100, 200, Long.MAX_VALUE, Long.MIN_VALUE});
+        assertParity(new int[] {0, -1, Integer.MAX_VALUE});
+        assertParity(new double[] {0.1, 1e300, -2.5});
+        assertParity(new boolean[] {true, false});
+        assertParity(new short[] {1, Short.MIN_VALUE});
+        assertParity(new byte[] {1, Byte.MAX_VALUE});
+        assertParity(new char[] {'a', '"'});
+        assertParity(new long[0]);
+    }
+
+    @Test
+    public void serializesObjectArraysLikeTheBaseline() throws JSONException {
+        assertParity(new Object[] {"a", 1, null, new long[] {1, 2}, new JSONArray().put(true)});
+        assertParity(new String[] {"a", "b"});
+    }
+
+    @Test(expected = JSONException.class)
+    public void rejectsNonArrays() throws JSONException {
+        JSONUtil.JSONArray((Object) "not an array");
+    }
+
+}
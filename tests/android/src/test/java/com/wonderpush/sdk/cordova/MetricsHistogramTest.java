@@ -0,0 +1,85 @@
+package com.wonderpush.sdk.cordova;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsHistogramTest {
+
+    @Test
+    public void reportsOnlyTheCountWhenEmpty() throws JSONException {
+        JSONObject json = new Metrics.Histogram().toJSON();
+        assertEquals(0, json.getLong("count"));
+        assertFalse(json.has("p50"));
+    }
+
+    @Test
+    public void keepsSmallValuesExact() throws JSONException {
+        Metrics.Histogram histogram = new Metrics.Histogram();
+        for (int i = 0; i < 4; ++i) {
+            histogram.record(i);
+        }
+        JSONObject json = histogram.toJSON();
+        assertEquals(4, json.getLong("count"));
+        assertEquals(1, json.getLong("mean"));
+        assertEquals(1, json.getLong("p50"));
+        assertEquals(3, json.getLong("p99"));
+        assertEquals(3, json.getLong("max"));
+    }
+
+    @Test
+    public void boundsPercentilesWithinABucket() throws JSONException {
+        Metrics.Histogram histogram = new Metrics.Histogram();
+        for (int i = 1; i <= 1000; ++i) {
+            histogram.record(i);
+        }
+        JSONObject json = histogram.toJSON();
+        assertWithinBucket(500, json.getLong("p50"));
+        assertWithinBucket(900, json.getLong("p90"));
+        assertWithinBucket(990, json.getLong("p99"));
+        assertEquals(1000, json.getLong("max"));
+    }
+
+    @Test
+    public void neverReportsMoreThanTheMax() throws JSONException {
+        Metrics.Histogram histogram = new Metrics.Histogram();
+        histogram.record(1001);
+        JSONObject json = histogram.toJSON();
+        assertEquals(1001, json.getLong("p50"));
+        assertEquals(1001, json.getLong("p99"));
+    }
+
+    @Test
+    public void countsHugeAndNegativeValues() throws JSONException {
+        Metrics.Histogram histogram = new Metrics.Histogram();
+        histogram.record(-5);
+        histogram.record(1L << 40);
+        JSONObject json = histogram.toJSON();
+        assertEquals(2, json.getLong("count"));
+        assertEquals(0, json.getLong("p50"));
+        assertEquals(1L << 40, json.getLong("max"));
+        assertEquals(1L << 40, json.getLong("p99"));
+    }
+
+    @Test
+    public void resetsEverything() throws JSONException {
+        Metrics.Histogram histogram = new Metrics.Histogram();
+        histogram.record(42);
+        histogram.reset();
+        assertEquals(0, histogram.toJSON().getLong("count"));
+        histogram.record(7);
+        assertEquals(7, histogram.toJSON().getLong("max"));
+    }
+
+    /**
+     * Buckets are a quarter of a power of two wide, percentiles report their upper bound.
+     */
+    private static void assertWithinBucket(long expected, long actual) {
+        assertTrue("expected about " + expected + ", got " + actual, actual >= expected && actual <= expected * 1.25);
+    }
+
+}
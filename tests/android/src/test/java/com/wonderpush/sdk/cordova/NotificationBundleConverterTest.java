@@ -0,0 +1,46 @@
+package com.wonderpush.sdk.cordova;
+
+import android.os.Bundle;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class NotificationBundleConverterTest {
+
+    private final NotificationBundleConverter converter = new NotificationBundleConverter();
+
+    private static Bundle extras(String messageId, String title) {
+        Bundle rtn = new Bundle();
+        if (messageId != null) rtn.putString("google.message_id", messageId);
+        rtn.putString("_wp", "{\"campaignId\":\"c1\",\"notificationId\":\"n1\"}");
+        rtn.putString("title", title);
+        return rtn;
+    }
+
+    @Test
+    public void parsesJsonValues() throws JSONException {
+        JSONObject notification = converter.convert(extras("m1", "Hello"));
+        assertEquals("c1", notification.getJSONObject("_wp").getString("campaignId"));
+        assertEquals("Hello", notification.getString("title"));
+    }
+
+    @Test
+    public void cachesByMessageId() {
+        assertSame(converter.convert(extras("m1", "Hello")), converter.convert(extras("m1", "Hello")));
+        assertNotSame(converter.convert(extras("m1", "Hello")), converter.convert(extras("m2", "Hello")));
+    }
+
+    @Test
+    public void doesNotCacheWithoutMessageId() throws JSONException {
+        JSONObject first = converter.convert(extras(null, "Hello"));
+        JSONObject second = converter.convert(extras(null, "Bye"));
+        assertEquals("Hello", first.getString("title"));
+        assertEquals("Bye", second.getString("title"));
+    }
+
+}
@@ -0,0 +1,214 @@
+package com.wonderpush.sdk.cordova;
+
+import org.json.JSONArray;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OutboxTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file() {
+        return new File(folder.getRoot(), "outbox.jsonl");
+    }
+
+    private static JSONArray args(Object... values) {
+        JSONArray rtn = new JSONArray();
+        for (Object value : values) {
+            rtn.put(value);
+        }
+        return rtn;
+    }
+
+    /**
+     * Consumes all operations, like replaying them does.
+     */
+    private static List<Outbox.Operation> consumeAll(Outbox outbox) {
+        List<Outbox.Operation> rtn = new ArrayList<>();
+        Outbox.Operation operation;
+        while ((operation = outbox.peek()) != null) {
+            rtn.add(operation);
+            outbox.consume(operation);
+        }
+        return rtn;
+    }
+
+    private static List<String> describe(List<Outbox.Operation> operations) {
+        List<String> rtn = new ArrayList<>();
+        for (Outbox.Operation operation : operations) {
+            rtn.add(operation.action + operation.args);
+        }
+        return rtn;
+    }
+
+    @Test
+    public void reloadsSyncedOperationsInOrder() {
+        Outbox outbox = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        outbox.add("trackEvent", args("first"));
+        outbox.add("addTag", args("a"));
+        outbox.add("trackEvent", args("second"));
+        outbox.sync();
+
+        Outbox reloaded = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        assertEquals(3, reloaded.size());
+        assertEquals(describe(consumeAll(outbox)), describe(consumeAll(reloaded)));
+    }
+
+    @Test
+    public void losesWhatWasNotSynced() {
+        Outbox outbox = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        outbox.add("trackEvent", args("synced"));
+        outbox.sync();
+        outbox.add("trackEvent", args("pending"));
+
+        Outbox reloaded = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        assertEquals(1, reloaded.size());
+    }
+
+    @Test
+    public void setAndUnsetSupersedeQueuedOperationsOnTheSameField() {
+        Outbox outbox = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        outbox.add("setProperty", args("string_a", "x"));
+        outbox.add("addProperty", args("string_a", "y"));
+        outbox.add("setProperty", args("string_b", "z"));
+        outbox.add("unsetProperty", args("string_a"));
+        List<String> operations = describe(consumeAll(outbox));
+        assertEquals(2, operations.size());
+        assertEquals("setProperty[\"string_b\",\"z\"]", operations.get(0));
+        assertEquals("unsetProperty[\"string_a\"]", operations.get(1));
+    }
+
+    @Test
+    public void addAndRemovePropertyDoNotSupersede() {
+        Outbox outbox = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        outbox.add("setProperty", args("string_a", "x"));
+        outbox.add("addProperty", args("string_a", "y"));
+        outbox.add("removeProperty", args("string_a", "x"));
+        assertEquals(3, outbox.size());
+    }
+
+    @Test
+    public void singleTagOperationsSupersedeEachOther() {
+        Outbox outbox = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        outbox.add("addTag", args("a"));
+        outbox.add("addTag", args("b"));
+        outbox.add("removeTag", args("a"));
+        // Arrays of tags are not keyed
+        outbox.add("addTag", args(args("a", "b")));
+        List<String> operations = describe(consumeAll(outbox));
+        assertEquals(3, operations.size());
+        assertEquals("addTag[\"b\"]", operations.get(0));
+        assertEquals("removeTag[\"a\"]", operations.get(1));
+    }
+
+    @Test
+    public void dropsTheOldestOperationsWhenFull() {
+        Outbox outbox = new Outbox(file(), 2);
+        outbox.add("trackEvent", args("1"));
+        outbox.add("trackEvent", args("2"));
+        outbox.add("trackEvent", args("3"));
+        assertEquals(1, outbox.getDropped());
+        List<String> operations = describe(consumeAll(outbox));
+        assertEquals("trackEvent[\"2\"]", operations.get(0));
+        assertEquals("trackEvent[\"3\"]", operations.get(1));
+    }
+
+    @Test
+    public void resumesAnInterruptedReplay() {
+        Outbox outbox = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        outbox.add("trackEvent", args("1"));
+        outbox.add("trackEvent", args("2"));
+        outbox.add("trackEvent", args("3"));
+        outbox.sync();
+        outbox.consume(outbox.peek());
+
+        Outbox reloaded = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        List<String> operations = describe(consumeAll(reloaded));
+        assertEquals(2, operations.size());
+        assertEquals("trackEvent[\"2\"]", operations.get(0));
+        assertEquals("trackEvent[\"3\"]", operations.get(1));
+    }
+
+    @Test
+    public void doesNotReloadOperationsConsumedBeforeTheyWereSynced() {
+        Outbox outbox = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        outbox.add("trackEvent", args("1"));
+        outbox.add("trackEvent", args("2"));
+        outbox.consume(outbox.peek());
+        outbox.sync();
+
+        Outbox reloaded = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        assertEquals(describe(consumeAll(outbox)), describe(consumeAll(reloaded)));
+    }
+
+    @Test
+    public void keepsNumberingAfterReloading() {
+        Outbox outbox = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        outbox.add("trackEvent", args("1"));
+        outbox.add("trackEvent", args("2"));
+        outbox.sync();
+        outbox.consume(outbox.peek());
+
+        Outbox reloaded = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        reloaded.add("trackEvent", args("3"));
+        reloaded.sync();
+        reloaded.consume(reloaded.peek());
+        assertEquals("trackEvent[\"3\"]", describe(consumeAll(new Outbox(file(), Outbox.DEFAULT_CAPACITY))).get(0));
+    }
+
+    @Test
+    public void consumingEverythingDeletesTheFile() {
+        Outbox outbox = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        outbox.add("trackEvent", args("1"));
+        outbox.sync();
+        assertTrue(file().exists());
+        assertEquals(1, consumeAll(outbox).size());
+        assertTrue(outbox.isEmpty());
+        assertFalse(file().exists());
+        assertTrue(new Outbox(file(), Outbox.DEFAULT_CAPACITY).isEmpty());
+    }
+
+    @Test
+    public void rewritesTheFileOnceMostLinesAreSuperseded() throws IOException {
+        Outbox outbox = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        for (int i = 0; i < 10; ++i) {
+            outbox.add("setProperty", args("int_counter", i));
+            outbox.sync();
+        }
+        assertEquals(1, outbox.size());
+        assertTrue(lines(file()).size() <= 2);
+        Outbox reloaded = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        assertEquals("setProperty[\"int_counter\",9]", describe(consumeAll(reloaded)).get(0));
+    }
+
+    @Test
+    public void skipsUnreadableLines() throws IOException {
+        FileOutputStream out = new FileOutputStream(file());
+        out.write(("{\"action\":\"trackEvent\",\"args\":[\"1\"]}\n"
+                + "not json\n"
+                + "{\"args\":[]}\n"
+                + "{\"action\":\"trackEvent\",\"args\":[\"2\"]}\n").getBytes(Charset.forName("UTF-8")));
+        out.close();
+        Outbox outbox = new Outbox(file(), Outbox.DEFAULT_CAPACITY);
+        assertEquals(2, outbox.size());
+    }
+
+    private static List<String> lines(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), Charset.forName("UTF-8"));
+    }
+
+}
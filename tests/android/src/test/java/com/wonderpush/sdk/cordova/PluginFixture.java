@@ -0,0 +1,240 @@
+package com.wonderpush.sdk.cordova;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaInterface;
+import org.apache.cordova.CordovaPreferences;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONTokener;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Runs a {@link WonderPushPlugin} against an in-memory Cordova, calling its actions like JavaScript does.
+ */
+class PluginFixture {
+
+    static final int TIMEOUT_MS = 5000;
+
+    /**
+     * The results sent for one action call.
+     */
+    static class Call {
+        final String action;
+        private final BlockingQueue<PluginResult> results = new LinkedBlockingQueue<>();
+
+        Call(String action) {
+            this.action = action;
+        }
+
+        /**
+         * Waits for the next result.
+         */
+        PluginResult next() throws InterruptedException {
+            PluginResult rtn = results.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            assertNotNull("No result for " + action, rtn);
+            return rtn;
+        }
+
+        /**
+         * Waits for a successful result and decodes its message like JavaScript does,
+         * {@link org.json.JSONObject#NULL} standing for {@code null}.
+         */
+        Object value() throws InterruptedException, JSONException {
+            PluginResult result = next();
+            assertEquals("Error for " + action + ": " + result.getMessage(), PluginResult.Status.OK.ordinal(), result.getStatus());
+            return decode(result);
+        }
+    }
+
+    static Object decode(PluginResult result) throws JSONException {
+        switch (result.getMessageType()) {
+            case PluginResult.MESSAGE_TYPE_NULL:
+                return org.json.JSONObject.NULL;
+            case PluginResult.MESSAGE_TYPE_STRING:
+                return result.getStrMessage();
+            default:
+                return new JSONTokener(result.getMessage()).nextValue();
+        }
+    }
+
+    final WonderPushPlugin plugin = new WonderPushPlugin();
+    final CordovaPreferences preferences = new CordovaPreferences();
+    final Bundle metaData = new Bundle();
+    final ExecutorService threadPool = Executors.newCachedThreadPool();
+    private final File filesDir;
+    private final Map<String, Call> calls = new ConcurrentHashMap<>();
+    private final AtomicInteger nextCallbackId = new AtomicInteger();
+
+    private final CordovaWebView webView = new CordovaWebView() {
+        @Override
+        public void sendPluginResult(PluginResult cr, String callbackId) {
+            // Forget calls once answered for good, so that benchmarks making millions of calls do not keep them
+            Call call = cr.getKeepCallback() ? calls.get(callbackId) : calls.remove(callbackId);
+            if (call != null) call.results.add(cr);
+        }
+    };
+
+    private final SharedPreferences sharedPreferences = new SharedPreferences() {
+        private final Map<String, String> values = new HashMap<>();
+
+        @Override
+        public synchronized String getString(String key, String defValue) {
+            String value = values.get(key);
+            return value == null ? defValue : value;
+        }
+
+        @Override
+        public Editor edit() {
+            return new Editor() {
+                @Override
+                public Editor putString(String key, String value) {
+                    synchronized (sharedPreferences) {
+                        values.put(key, value);
+                    }
+                    return this;
+                }
+
+                @Override
+                public Editor remove(String key) {
+                    synchronized (sharedPreferences) {
+                        values.remove(key);
+                    }
+                    return this;
+                }
+
+                @Override
+                public Editor clear() {
+                    synchronized (sharedPreferences) {
+                        values.clear();
+                    }
+                    return this;
+                }
+
+                @Override
+                public boolean commit() {
+                    return true;
+                }
+
+                @Override
+                public void apply() {
+                }
+            };
+        }
+    };
+
+    private final Context context = new Context() {
+        @Override
+        public Context getApplicationContext() {
+            return this;
+        }
+
+        @Override
+        public String getPackageName() {
+            return "com.example";
+        }
+
+        @Override
+        public PackageManager getPackageManager() {
+            return new PackageManager() {
+                @Override
+                public ApplicationInfo getApplicationInfo(String packageName, int flags) {
+                    ApplicationInfo rtn = new ApplicationInfo();
+                    rtn.metaData = metaData;
+                    return rtn;
+                }
+            };
+        }
+
+        @Override
+        public File getFilesDir() {
+            return filesDir;
+        }
+
+        @Override
+        public SharedPreferences getSharedPreferences(String name, int mode) {
+            return sharedPreferences;
+        }
+    };
+
+    private final CordovaInterface cordova = new CordovaInterface() {
+        @Override
+        public Activity getActivity() {
+            return null;
+        }
+
+        @Override
+        public Context getContext() {
+            return context;
+        }
+
+        @Override
+        public ExecutorService getThreadPool() {
+            return threadPool;
+        }
+    };
+
+    PluginFixture(File filesDir) {
+        this.filesDir = filesDir;
+    }
+
+    Context getContext() {
+        return context;
+    }
+
+    /**
+     * Initializes the plugin, after the preferences and meta-data have been set.
+     */
+    PluginFixture initialize() {
+        plugin.privateInitialize("WonderPushPlugin", cordova, webView, preferences);
+        return this;
+    }
+
+    void destroy() {
+        plugin.onDestroy();
+        threadPool.shutdownNow();
+    }
+
+    /**
+     * Calls an action with the given arguments.
+     */
+    Call call(String action, Object... args) throws JSONException {
+        JSONArray rawArgs = new JSONArray();
+        for (Object arg : args) {
+            rawArgs.put(arg);
+        }
+        return callWithArgs(action, rawArgs);
+    }
+
+    Call callWithArgs(String action, JSONArray args) throws JSONException {
+        String callbackId = "WonderPushPlugin" + nextCallbackId.incrementAndGet();
+        Call call = new Call(action);
+        calls.put(callbackId, call);
+        if (!plugin.execute(action, args, new CallbackContext(callbackId, webView))) {
+            call.results.add(new PluginResult(PluginResult.Status.INVALID_ACTION));
+        }
+        return call;
+    }
+
+}
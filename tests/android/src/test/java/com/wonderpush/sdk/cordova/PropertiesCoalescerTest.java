@@ -0,0 +1,114 @@
+package com.wonderpush.sdk.cordova;
+
+import com.wonderpush.sdk.WonderPush;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PropertiesCoalescerTest {
+
+    private PropertiesCoalescer coalescer;
+
+    @Before
+    public void setUp() {
+        WonderPush.reset();
+        coalescer = new PropertiesCoalescer();
+        coalescer.setWindowMs(100);
+    }
+
+    @Test
+    public void keepsTheLastValueSet() throws JSONException {
+        coalescer.setProperty("string_a", "x");
+        coalescer.setProperty("string_a", "y");
+        coalescer.setProperty("int_b", 1);
+        coalescer.flush();
+        assertEquals(1, WonderPush.getCalls().size());
+        JSONObject properties = WonderPush.getProperties();
+        assertEquals(2, properties.length());
+        assertEquals("y", properties.getString("string_a"));
+        assertEquals(1, properties.getInt("int_b"));
+    }
+
+    @Test
+    public void sendsUnsetAsNull() {
+        coalescer.setProperty("string_a", "x");
+        coalescer.unsetProperty("string_a");
+        coalescer.flush();
+        assertEquals("putProperties {\"string_a\":null}", WonderPush.getCalls().get(0));
+    }
+
+    @Test
+    public void mergesAdditionsIntoASetValue() {
+        coalescer.setProperty("string_a", "x");
+        coalescer.addProperty("string_a", new JSONArray().put("y").put("x"));
+        coalescer.removeProperty("string_a", "x");
+        coalescer.flush();
+        assertEquals("putProperties {\"string_a\":[\"y\"]}", WonderPush.getCalls().get(0));
+    }
+
+    @Test
+    public void removingEverythingFromASetValueUnsetsIt() {
+        coalescer.setProperty("string_a", "x");
+        coalescer.removeProperty("string_a", "x");
+        coalescer.flush();
+        assertEquals("putProperties {\"string_a\":null}", WonderPush.getCalls().get(0));
+    }
+
+    @Test
+    public void keepsTheNetAdditionsAndRemovals() {
+        coalescer.addProperty("string_a", "x");
+        coalescer.addProperty("string_a", "y");
+        coalescer.removeProperty("string_a", "x");
+        coalescer.removeProperty("string_a", "z");
+        coalescer.addProperty("string_a", "z");
+        coalescer.flush();
+        assertEquals(2, WonderPush.getCalls().size());
+        assertEquals("addProperty string_a [\"y\",\"z\"]", WonderPush.getCalls().get(0));
+        assertEquals("removeProperty string_a [\"x\"]", WonderPush.getCalls().get(1));
+    }
+
+    @Test
+    public void settingDiscardsPendingAdditionsAndRemovals() {
+        coalescer.addProperty("string_a", "x");
+        coalescer.removeProperty("string_a", "y");
+        coalescer.setProperty("string_a", "z");
+        coalescer.flush();
+        assertEquals(1, WonderPush.getCalls().size());
+        assertEquals("putProperties {\"string_a\":\"z\"}", WonderPush.getCalls().get(0));
+    }
+
+    @Test
+    public void putPropertiesSetsEachField() throws JSONException {
+        coalescer.addProperty("string_a", "x");
+        coalescer.putProperties(new JSONObject().put("string_a", "y"));
+        coalescer.flush();
+        assertEquals("putProperties {\"string_a\":\"y\"}", WonderPush.getCalls().get(0));
+    }
+
+    @Test
+    public void flushEmptiesThePendingMutations() {
+        assertFalse(coalescer.hasPending());
+        coalescer.setProperty("string_a", "x");
+        assertTrue(coalescer.hasPending());
+        coalescer.flush();
+        assertFalse(coalescer.hasPending());
+        coalescer.flush();
+        assertEquals(1, WonderPush.getCalls().size());
+    }
+
+    @Test
+    public void isDisabledWithoutAWindow() {
+        coalescer.setWindowMs(0);
+        assertFalse(coalescer.isEnabled());
+        coalescer.setWindowMs(-1);
+        assertEquals(0, coalescer.getWindowMs());
+    }
+
+}
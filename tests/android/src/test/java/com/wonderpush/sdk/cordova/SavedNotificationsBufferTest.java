@@ -0,0 +1,144 @@
+package com.wonderpush.sdk.cordova;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class SavedNotificationsBufferTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static SavedNotificationsBuffer.SavedNotification notification(String id, String campaignId) throws JSONException {
+        JSONObject notification = new JSONObject().put("id", id);
+        if (campaignId != null) {
+            notification.put("_wp", new JSONObject().put("c", campaignId));
+        }
+        return new SavedNotificationsBuffer.SavedNotification(false, notification, -1);
+    }
+
+    private static String pollId(SavedNotificationsBuffer buffer) {
+        SavedNotificationsBuffer.SavedNotification item = buffer.poll();
+        return item == null ? null : item.notification.optString("id");
+    }
+
+    @Test
+    public void dropsTheOldestWhenFull() throws JSONException {
+        SavedNotificationsBuffer buffer = new SavedNotificationsBuffer(2, SavedNotificationsBuffer.OverflowPolicy.DROP_OLDEST);
+        buffer.add(notification("1", null));
+        buffer.add(notification("2", null));
+        buffer.add(notification("3", null));
+        assertEquals(1, buffer.getDropped());
+        assertEquals("2", pollId(buffer));
+        assertEquals("3", pollId(buffer));
+        assertNull(pollId(buffer));
+    }
+
+    @Test
+    public void coalescesByCampaignWhenFull() throws JSONException {
+        SavedNotificationsBuffer buffer = new SavedNotificationsBuffer(2, SavedNotificationsBuffer.OverflowPolicy.COALESCE_BY_CAMPAIGN);
+        buffer.add(notification("1", "a"));
+        buffer.add(notification("2", "b"));
+        buffer.add(notification("3", "b"));
+        assertEquals("1", pollId(buffer));
+        assertEquals("3", pollId(buffer));
+    }
+
+    @Test
+    public void reloadsTheJournal() throws JSONException {
+        File journal = new File(folder.getRoot(), "saved.jsonl");
+        SavedNotificationsBuffer buffer = new SavedNotificationsBuffer(10, SavedNotificationsBuffer.OverflowPolicy.DROP_OLDEST);
+        buffer.setJournal(journal);
+        buffer.add(notification("1", null));
+        buffer.add(notification("2", null));
+
+        SavedNotificationsBuffer reloaded = new SavedNotificationsBuffer(10, SavedNotificationsBuffer.OverflowPolicy.DROP_OLDEST);
+        reloaded.add(notification("3", null));
+        reloaded.setJournal(journal);
+        assertEquals("1", pollId(reloaded));
+        assertEquals("2", pollId(reloaded));
+        assertEquals("3", pollId(reloaded));
+    }
+
+    @Test
+    public void doesNotRedeliverAfterAnInterruptedReplay() throws JSONException {
+        File journal = new File(folder.getRoot(), "saved.jsonl");
+        SavedNotificationsBuffer buffer = new SavedNotificationsBuffer(10, SavedNotificationsBuffer.OverflowPolicy.DROP_OLDEST);
+        buffer.setJournal(journal);
+        buffer.add(notification("1", null));
+        buffer.add(notification("2", null));
+        buffer.add(notification("3", null));
+        assertEquals("1", pollId(buffer));
+
+        SavedNotificationsBuffer reloaded = new SavedNotificationsBuffer(10, SavedNotificationsBuffer.OverflowPolicy.DROP_OLDEST);
+        reloaded.setJournal(journal);
+        assertEquals(2, reloaded.size());
+        assertEquals("2", pollId(reloaded));
+
+        SavedNotificationsBuffer reloadedAgain = new SavedNotificationsBuffer(10, SavedNotificationsBuffer.OverflowPolicy.DROP_OLDEST);
+        reloadedAgain.setJournal(journal);
+        assertEquals(1, reloadedAgain.size());
+        assertEquals("3", pollId(reloadedAgain));
+    }
+
+    @Test
+    public void deletesTheJournalOnceEverythingIsConsumed() throws JSONException {
+        File journal = new File(folder.getRoot(), "saved.jsonl");
+        SavedNotificationsBuffer buffer = new SavedNotificationsBuffer(10, SavedNotificationsBuffer.OverflowPolicy.DROP_OLDEST);
+        buffer.setJournal(journal);
+        buffer.add(notification("1", null));
+        assertEquals("1", pollId(buffer));
+        assertNull(pollId(buffer));
+        assertFalse(journal.exists());
+    }
+
+    @Test
+    public void keepsEveryNotificationAddedConcurrently() throws Exception {
+        final int threads = 8;
+        final int perThread = 1000;
+        final SavedNotificationsBuffer buffer = new SavedNotificationsBuffer(threads * perThread, SavedNotificationsBuffer.OverflowPolicy.DROP_OLDEST);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] producers = new Thread[threads];
+        for (int t = 0; t < threads; ++t) {
+            final int thread = t;
+            producers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < perThread; ++i) {
+                            buffer.add(notification(thread + ":" + i, null));
+                        }
+                    } catch (Exception ex) {
+                        throw new RuntimeException(ex);
+                    }
+                }
+            });
+            producers[t].start();
+        }
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertEquals(threads * perThread, buffer.size());
+        assertEquals(0, buffer.getDropped());
+        Set<String> ids = new HashSet<>();
+        String id;
+        while ((id = pollId(buffer)) != null) {
+            ids.add(id);
+        }
+        assertEquals(threads * perThread, ids.size());
+    }
+
+}
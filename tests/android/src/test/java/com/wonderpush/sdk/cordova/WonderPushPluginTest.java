@@ -0,0 +1,121 @@
+package com.wonderpush.sdk.cordova;
+
+import android.content.Intent;
+
+import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+
+import com.wonderpush.sdk.WonderPush;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class WonderPushPluginTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PluginFixture fixture;
+
+    @Before
+    public void setUp() {
+        WonderPush.reset();
+        fixture = new PluginFixture(folder.getRoot()).initialize();
+    }
+
+    @After
+    public void tearDown() {
+        fixture.destroy();
+    }
+
+    @Test
+    public void doesNotHandleUnknownActions() throws JSONException {
+        assertFalse(fixture.plugin.execute("noSuchAction", new JSONArray(), new CallbackContext("id", null)));
+    }
+
+    @Test
+    public void runsSerialActionsInCallOrder() throws Exception {
+        fixture.call("setUserId", "first");
+        fixture.call("setUserId", "second");
+        PluginFixture.Call getUserId = fixture.call("getUserId");
+        assertEquals("second", getUserId.value());
+    }
+
+    @Test
+    public void rejectsInvalidArguments() throws Exception {
+        PluginResult result = fixture.call("setLogging", "not a boolean").next();
+        assertEquals(PluginResult.Status.ERROR.ordinal(), result.getStatus());
+    }
+
+    @Test
+    public void forgetsNullCredentials() throws Exception {
+        fixture.call("initializeAndRememberCredentials", "clientId", "clientSecret").value();
+        assertEquals("clientId", fixture.call("getRememberedClientId").value());
+        fixture.call("initializeAndRememberCredentials", JSONObject.NULL, JSONObject.NULL).value();
+        assertEquals(JSONObject.NULL, fixture.call("getRememberedClientId").value());
+        assertEquals(Boolean.FALSE, fixture.call("isInitialized").value());
+    }
+
+    @Test
+    public void countsCallsPerAction() throws Exception {
+        fixture.call("resetMetrics").value();
+        fixture.call("trackEvent", "a").value();
+        fixture.call("trackEvent", "b").value();
+        // Calls are recorded after they answer, wait for the serial queue to get past them
+        fixture.call("getUserId").value();
+        JSONObject metrics = (JSONObject) fixture.call("getMetrics").value();
+        JSONObject trackEvent = metrics.getJSONObject("actions").getJSONObject("trackEvent");
+        assertEquals(2, trackEvent.getLong("calls"));
+        assertEquals(0, trackEvent.getLong("errors"));
+    }
+
+    private void sendRegisteredCallback(String method, String notificationId) {
+        Intent intent = new Intent(WonderPush.INTENT_NOTIFICATION_BUTTON_ACTION_METHOD_ACTION);
+        intent.putExtra(WonderPush.INTENT_NOTIFICATION_BUTTON_ACTION_METHOD_EXTRA_METHOD, method);
+        intent.putExtra(WonderPush.INTENT_NOTIFICATION_BUTTON_ACTION_METHOD_EXTRA_ARG, "arg");
+        if (notificationId != null) {
+            Intent pushNotif = new Intent();
+            pushNotif.putExtra("_wp", "{\"c\":\"campaign\",\"n\":\"" + notificationId + "\"}");
+            intent.putExtra(WonderPush.INTENT_NOTIFICATION_WILL_OPEN_EXTRA_RECEIVED_PUSH_NOTIFICATION, pushNotif);
+        }
+        LocalBroadcastManager.getInstance(fixture.getContext()).sendBroadcast(intent);
+    }
+
+    @Test
+    public void filtersDuplicateRegisteredCallbacksOfTheSameNotification() throws Exception {
+        PluginFixture.Call forwarder = fixture.call("__setEventForwarder");
+        forwarder.next();
+        sendRegisteredCallback("method", "n1");
+        sendRegisteredCallback("method", "n1");
+        sendRegisteredCallback("method", "n2");
+        // Without a notification to tell them apart, nothing is filtered
+        sendRegisteredCallback("method", null);
+        sendRegisteredCallback("method", null);
+        sendRegisteredCallback("done", null);
+
+        List<String> methods = new ArrayList<>();
+        while (!methods.contains("done")) {
+            Object value = PluginFixture.decode(forwarder.next());
+            JSONArray events = value instanceof JSONArray ? (JSONArray) value : new JSONArray().put(value);
+            for (int i = 0; i < events.length(); ++i) {
+                methods.add(events.getJSONObject(i).getString("method"));
+            }
+        }
+        assertEquals(Arrays.asList("method", "method", "method", "method", "done"), methods);
+    }
+
+}
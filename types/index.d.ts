@@ -28,6 +28,11 @@ export interface WonderPushChannelGroup {
   name?: string;
 }
 
+export interface WonderPushChannelChanges {
+  put: string[];
+  removed: string[];
+}
+
 export interface UserPreferences  {
   /**
    * Get the default channel id
@@ -58,17 +63,23 @@ export interface UserPreferences  {
 
   /**
    * Create, update and remove channel existing groups to match the given channel groups
+   *
+   * Only the groups that changed since the last call are updated.
+   * On Android, resolves with the ids of the groups put and removed.
    * @param {WonderPushChannelGroup[]} channelGroups
-   * @returns {Promise<void>}
+   * @returns {Promise<WonderPushChannelChanges | void>}
    */
-  setChannelGroups(channelGroups: WonderPushChannelGroup[]): Promise<void>;
+  setChannelGroups(channelGroups: WonderPushChannelGroup[]): Promise<WonderPushChannelChanges | void>;
 
   /**
    * Create, update and remove channels to match the given channels
+   *
+   * Only the channels that changed since the last call are updated.
+   * On Android, resolves with the ids of the channels put and removed.
    * @param {WonderPushChannel[]} channels
-   * @returns {Promise<void>}
+   * @returns {Promise<WonderPushChannelChanges | void>}
    */
-  setChannels(channels: WonderPushChannel[]): Promise<void>;
+  setChannels(channels: WonderPushChannel[]): Promise<WonderPushChannelChanges | void>;
 
   /**
    * Create or update a channel group
@@ -280,6 +291,30 @@ export interface WonderPushPlugin {
    */
   trackEvent(type: string, attributes: { [key: string]: any }): Promise<void>;
 
+  /**
+   * Aggregates the events of the given type tracked within a time window, on Android.
+   *
+   * When enabled, events of this type are summarized into a single event once the window is over,
+   * when the application is paused, or when calling `flushAggregatedEvents()`.
+   * The summary holds the number of events in `int_aggregatedCount`, and for every numeric attribute
+   * its sum, minimum and maximum, with `Sum`, `Min` and `Max` appended to its name.
+   * Other attributes keep their last value.
+   *
+   * This is a safe no-op on other platforms.
+   * @param {string} type The event type to aggregate.
+   * @param {number} windowMs The aggregation window in milliseconds, `0` to stop aggregating.
+   * @returns {Promise<void>}
+   */
+  setEventAggregation(type: string, windowMs: number): Promise<void>;
+
+  /**
+   * Immediately tracks the events aggregated by `setEventAggregation()`.
+   *
+   * This is a safe no-op on other platforms than Android.
+   * @returns {Promise<void>}
+   */
+  flushAggregatedEvents(): Promise<void>;
+
   /**
    * Adds one or more tags to the installation.
    * @param {string|string[]} tag - The tags to add to the installation. You can use either a single string argument or an array of strings.
@@ -300,6 +335,16 @@ export interface WonderPushPlugin {
    */
   removeAllTags(): Promise<void>;
 
+  /**
+   * Replaces the tags of the installation with the given ones.
+   *
+   * Only the tags to remove and the tags to add are sent, which is cheaper than
+   * removing all tags and adding them back.
+   * @param {string[]} tags The tags the installation should have.
+   * @returns {Promise<void>}
+   */
+  setTags(tags: string[]): Promise<void>;
+
   /**
    * Returns all the tags of the installation.
    * @returns {Promise<string[]>}
@@ -402,6 +447,28 @@ export interface WonderPushPlugin {
    */
   putProperties(properties: { [key: string]: any }): Promise<void>;
 
+  /**
+   * Merges the installation property updates made within a time window, on Android.
+   *
+   * When enabled, `setProperty`, `unsetProperty`, `addProperty`, `removeProperty`, `putProperties`
+   * and `putInstallationCustomProperties` are applied together once the window is over,
+   * when the application is paused, or when calling `flushProperties()`.
+   * Setting the same field multiple times within the window only sends the last value.
+   *
+   * This is a safe no-op on other platforms.
+   * @param {number} windowMs The coalescing window in milliseconds, `0` to disable coalescing.
+   * @returns {Promise<void>}
+   */
+  setPropertiesCoalescingWindow(windowMs: number): Promise<void>;
+
+  /**
+   * Immediately applies the installation property updates merged by `setPropertiesCoalescingWindow()`.
+   *
+   * This is a safe no-op on other platforms than Android.
+   * @returns {Promise<void>}
+   */
+  flushProperties(): Promise<void>;
+
   /**
    * Subscribes to push notification and registers the device token with WondePush.
    *
@@ -562,6 +629,46 @@ export interface WonderPushPlugin {
    */
   setGeolocation(latitude: number, longitude: number): Promise<void>;
 
+  /**
+   * Filters the geolocations given to `setGeolocation()`, on Android.
+   *
+   * A geolocation is only reported if it moved at least `minDistanceMeters` from the last reported one,
+   * or if at least `minIntervalSeconds` elapsed since then. A threshold of `0` is ignored.
+   * With both thresholds at `0`, the default, every geolocation is reported.
+   *
+   * This is a safe no-op on other platforms.
+   * @param {number} minDistanceMeters The minimum distance in meters, `0` to ignore.
+   * @param {number} minIntervalSeconds The minimum interval in seconds, `0` to ignore.
+   * @returns {Promise<void>}
+   */
+  setGeolocationFilter(minDistanceMeters: number, minIntervalSeconds: number): Promise<void>;
+
+  /**
+   * Returns a snapshot of the plugin metrics, on Android.
+   *
+   * The snapshot holds, per action, the number of calls and errors and a latency histogram,
+   * the time actions waited in queue, the size of the messages sent to JavaScript,
+   * the round-trip time and timeouts of native calls waiting for JavaScript,
+   * how many notifications waited for the delegate to be set,
+   * how many geolocations were reported or dropped by `setGeolocationFilter()`,
+   * how many duplicate notification opens and registered callbacks were suppressed,
+   * the depth and high-water mark of the high and low priority lanes of events sent to JavaScript,
+   * and the time spent initializing the plugin and dispatching the first call.
+   * Histograms give `count`, `mean`, `p50`, `p90`, `p99` and `max`, latencies being in microseconds.
+   *
+   * Resolves with `null` on other platforms.
+   * @returns {Promise<object | null>}
+   */
+  getMetrics(): Promise<{ [key: string]: any } | null>;
+
+  /**
+   * Resets the plugin metrics returned by `getMetrics()`.
+   *
+   * This is a safe no-op on other platforms than Android.
+   * @returns {Promise<void>}
+   */
+  resetMetrics(): Promise<void>;
+
 }
 
 export declare const WonderPush: WonderPushPlugin;
@@ -4,6 +4,8 @@
  */
 /**
  * This callback is called with an Error argument when the call fails.
+ * On Android, invalid arguments are reported with an object holding `code: "invalidArgument"`,
+ * the `action`, the `index` and `expected` type of the argument, and a `message`.
  * @callback WonderPush~ErrorCallback
  */
 /**
@@ -73,26 +75,149 @@ function _makeDeferred(successCb, errorCb) {
 
 function _callNative(actionName, args, successCb, errorCb) {
   var deferred = _makeDeferred(successCb, errorCb);
+  if (_tagsMirrorInvalidatingActions.indexOf(actionName) >= 0) {
+    _invalidateTagsMirror();
+  }
   if (typeof cordova !== "undefined") {
-    cordova.exec(deferred.success, deferred.failure, _serviceName, actionName, args || []);
+    if (_isBatchable(actionName)) {
+      _enqueueBatchedCall(actionName, args || [], deferred);
+    } else {
+      // Keep calls ordered
+      _flushBatchedCalls();
+      cordova.exec(deferred.success, deferred.failure, _serviceName, actionName, args || []);
+    }
   }
   return deferred.promise;
 }
 
+///
+/// Plugin helpers - Batching
+///
+
+/**
+ * Actions that keep their callback for successive results, or that answer a waiting native thread,
+ * and therefore cannot be batched.
+ * @private
+ */
+var _unbatchableActions = ['__callback', '__setEventForwarder', '__batch', 'setDelegate'];
+
+/**
+ * Calls made during the current tick, to be sent together in a single `__batch` call.
+ * @private
+ */
+var _batchedCalls = null;
+
+function _isBatchable(actionName) {
+  return cordova.platformId === "android" && _unbatchableActions.indexOf(actionName) < 0;
+}
+
+function _enqueueBatchedCall(actionName, args, deferred) {
+  if (_batchedCalls === null) {
+    _batchedCalls = [];
+    Promise.resolve().then(_flushBatchedCalls);
+  }
+  _batchedCalls.push({action: actionName, args: args, deferred: deferred});
+}
+
+function _flushBatchedCalls() {
+  var calls = _batchedCalls;
+  _batchedCalls = null;
+  if (!calls || calls.length === 0) return;
+  if (calls.length === 1) {
+    cordova.exec(calls[0].deferred.success, calls[0].deferred.failure, _serviceName, calls[0].action, calls[0].args);
+    return;
+  }
+  var batch = calls.map(function(call) {
+    return {action: call.action, args: call.args};
+  });
+  cordova.exec(function(results) {
+    calls.forEach(function(call, i) {
+      var result = results && results[i];
+      if (result && result.ok) {
+        call.deferred.success(result.value);
+      } else {
+        call.deferred.failure(result ? result.error : 'Missing result in batch');
+      }
+    });
+  }, function(error) {
+    calls.forEach(function(call) {
+      call.deferred.failure(error);
+    });
+  }, _serviceName, '__batch', [batch]);
+}
+
+///
+/// Plugin helpers - Tags mirror
+///
+
+/**
+ * Actions that may change the installation tags.
+ * @private
+ */
+var _tagsMirrorInvalidatingActions = ['initialize', 'initializeAndRememberCredentials', 'setUserId', 'addTag', 'removeTag', 'removeAllTags', 'setTags', 'setUserConsent', 'clearAllData', 'clearPreferences'];
+
+/**
+ * Last known installation tags, as `{list: string[], set: object, at: number}`, or `null` when unknown.
+ * Lets `getTags` and `hasTag` answer without calling native code.
+ * @private
+ */
+var _tagsMirror = null;
+var _tagsMirrorVersion = 0;
+
+/**
+ * How long the tags mirror is trusted, as the SDK can change tags on its own, like with in-app message actions.
+ * @private
+ */
+var _tagsMirrorTtlMs = 1000;
+
+function _getTagsMirror() {
+  if (_tagsMirror !== null && Date.now() - _tagsMirror.at >= _tagsMirrorTtlMs) {
+    _tagsMirror = null;
+  }
+  return _tagsMirror;
+}
+
+function _invalidateTagsMirror() {
+  _tagsMirror = null;
+  ++_tagsMirrorVersion;
+}
+
+function _setTagsMirror(version, tags) {
+  // Ignore tags read before a possible change
+  if (version !== _tagsMirrorVersion || !Array.isArray(tags)) return;
+  var set = Object.create(null);
+  tags.forEach(function(tag) {
+    set[tag] = true;
+  });
+  _tagsMirror = {list: tags.slice(), set: set, at: Date.now()};
+}
+
+if (typeof document !== "undefined") {
+  // Tags may have changed while in background
+  document.addEventListener('resume', _invalidateTagsMirror, false);
+}
+
 function _callCallbackReturnPromise(result, successCb) {
   var deferred = _makeDeferred(successCb);
   deferred.success(result);
   return deferred.promise;
 }
 
-_callNative('__setEventForwarder', [], function(event) {
+function _handleNativeEvent(event) {
   if (!event) return;
+  if (Array.isArray(event)) {
+    // Events batched by the native side
+    event.forEach(_handleNativeEvent);
+    return;
+  }
   if (typeof cordova === "undefined") {
     console.warn('[WonderPush] cordova is not defined, could not fireDocumentEvent', event);
     return;
   }
   switch (event.type) {
     case 'notificationOpen':
+      // Notification actions may have changed the tags
+      _invalidateTagsMirror();
       /**
        * Triggered when a notification is clicked.
        * @event WonderPush#event:"wonderpush.notificationOpen"
@@ -116,11 +241,17 @@ _callNative('__setEventForwarder', [], function(event) {
         arg: event.arg,
       });
       break;
+    case 'installationChanged':
+      // The native side changed the installation on its own, like when replaying calls made before initialization
+      _invalidateTagsMirror();
+      break;
     default:
       console.warn('[WonderPush] Unknown native to JavaScript event of type ' + event.type, event);
       break;
   }
-});
+}
+
+_callNative('__setEventForwarder', [], _handleNativeEvent);
 
 ///
 /// Plugin helpers - Custom properties
@@ -263,6 +394,11 @@ function delegateNativeCallback(call) {
   if (!call || !currentDelegate) {
     return;
   }
+  if (Array.isArray(call)) {
+    // Calls batched by the native side
+    call.forEach(delegateNativeCallback);
+    return;
+  }
   switch (call.method) {
     case 'onNotificationReceived':
       if (currentDelegate.onNotificationReceived) {
@@ -297,7 +433,8 @@ function delegateNativeCallback(call) {
 function setDelegate(delegate, onSuccess, onFailure) {
   onSuccess = onSuccess || function(){}; // ensure cb is set to consume first result properly
   currentDelegate = delegate;
-  return _callNative('setDelegate', [currentDelegate != null], function(call) {
+  var hasUrlForDeepLink = currentDelegate != null && typeof currentDelegate.urlForDeepLink === 'function';
+  return _callNative('setDelegate', [currentDelegate != null, hasUrlForDeepLink], function(call) {
     if (onSuccess) {
       // Consuming first return
       onSuccess();
@@ -418,6 +555,55 @@ function trackEvent(type, attributes, onSuccess, onFailure) {
   return _callNative('trackEvent', args, onSuccess, onFailure);
 }
 
+/**
+ * Aggregates the events of the given type tracked within a time window, on Android.
+ *
+ * When enabled, events of this type are summarized into a single event once the window is over,
+ * when the application is paused, or when calling `flushAggregatedEvents()`.
+ * The summary holds the number of events in `int_aggregatedCount`, and for every numeric attribute
+ * its sum, minimum and maximum, with `Sum`, `Min` and `Max` appended to its name.
+ * Other attributes keep their last value.
+ *
+ * This is a safe no-op on other platforms.
+ *
+ * @param {string} type - The event type to aggregate.
+ * @param {number} windowMs - The aggregation window in milliseconds, `0` to stop aggregating.
+ * @param {WonderPush~SuccessCallback} [onSuccess] - The success callback.
+ * @param {WonderPush~ErrorCallback} [onFailure] - The failure callback.
+ * @memberof WonderPush
+ */
+function setEventAggregation(type, windowMs, onSuccess, onFailure) {
+  if (!type) {
+    throw new Error('Missing event type');
+  }
+  if (typeof windowMs !== 'number' || windowMs < 0) {
+    throw new Error('Given parameter is not a positive number');
+  }
+
+  if (typeof cordova !== "undefined" && cordova.platformId === "android") {
+    return _callNative('setEventAggregation', [type, windowMs], onSuccess, onFailure);
+  } else {
+    return _callCallbackReturnPromise(undefined, onSuccess);
+  }
+}
+
+/**
+ * Immediately tracks the events aggregated by `setEventAggregation()`.
+ *
+ * This is a safe no-op on other platforms than Android.
+ *
+ * @param {WonderPush~SuccessCallback} [onSuccess] - The success callback.
+ * @param {WonderPush~ErrorCallback} [onFailure] - The failure callback.
+ * @memberof WonderPush
+ */
+function flushAggregatedEvents(onSuccess, onFailure) {
+  if (typeof cordova !== "undefined" && cordova.platformId === "android") {
+    return _callNative('flushAggregatedEvents', [], onSuccess, onFailure);
+  } else {
+    return _callCallbackReturnPromise(undefined, onSuccess);
+  }
+}
+
 /**
  * Adds one or more tags to the installation.
  * @param {string|string[]} tag - The tags to add to the installation. You can use either a single string argument or an array of strings.
@@ -450,6 +636,49 @@ function removeAllTags(onSuccess, onFailure) {
   return _callNative('removeAllTags', [], onSuccess, onFailure);
 }
 
+/**
+ * Replaces the tags of the installation with the given ones.
+ *
+ * Only the tags to remove and the tags to add are sent, which is cheaper than
+ * removing all tags and adding them back.
+ * @param {string[]} tags - The tags the installation should have.
+ * @param {WonderPush~SuccessCallback} [onSuccess] - The success callback.
+ * @param {WonderPush~ErrorCallback} [onFailure] - The failure callback.
+ * @memberof WonderPush
+ */
+function setTags(tags, onSuccess, onFailure) {
+  if (!Array.isArray(tags)) {
+    throw new Error('Given parameter is not an array of tags');
+  }
+
+  if (typeof cordova !== "undefined" && cordova.platformId === "android") {
+    return _callNative('setTags', [tags], onSuccess, onFailure);
+  }
+  var deferred = _makeDeferred(onSuccess, onFailure);
+  getTags().then(function(currentTags) {
+    var target = Object.create(null);
+    tags.forEach(function(tag) {
+      target[tag] = true;
+    });
+    var current = Object.create(null);
+    var removed = [];
+    (currentTags || []).forEach(function(tag) {
+      current[tag] = true;
+      if (!(tag in target)) removed.push(tag);
+    });
+    var added = Object.keys(target).filter(function(tag) {
+      return !(tag in current);
+    });
+    return Promise.all([
+      removed.length ? removeTag(removed) : null,
+      added.length ? addTag(added) : null,
+    ]);
+  }).then(function() {
+    deferred.success();
+  }, deferred.failure);
+  return deferred.promise;
+}
+
 /**
  * Returns all the tags of the installation.
  * @param {WonderPush~StringArrayCallback} cb - The callback called with an array of string tags.
@@ -457,7 +686,15 @@ function removeAllTags(onSuccess, onFailure) {
  * @memberof WonderPush
  */
 function getTags(cb, onFailure) {
-  return _callNative('getTags', [], cb, onFailure);
+  var mirror = _getTagsMirror();
+  if (mirror !== null) {
+    return _callCallbackReturnPromise(mirror.list.slice(), cb);
+  }
+  var version = _tagsMirrorVersion;
+  return _callNative('getTags', [], function(tags) {
+    _setTagsMirror(version, tags);
+    cb && cb(tags);
+  }, onFailure);
 }
 
 /**
@@ -468,6 +705,10 @@ function getTags(cb, onFailure) {
  * @memberof WonderPush
  */
 function hasTag(tag, cb, onFailure) {
+  var mirror = _getTagsMirror();
+  if (mirror !== null) {
+    return _callCallbackReturnPromise(tag in mirror.set, cb);
+  }
   return _callNative('hasTag', [tag], cb, onFailure);
 }
 
@@ -640,6 +881,50 @@ function putInstallationCustomProperties(customProperties, onSuccess, onFailure)
   return _callNative('putInstallationCustomProperties', [customProperties], onSuccess, onFailure);
 }
 
+/**
+ * Merges the installation property updates made within a time window, on Android.
+ *
+ * When enabled, `setProperty`, `unsetProperty`, `addProperty`, `removeProperty`, `putProperties`
+ * and `putInstallationCustomProperties` are applied together once the window is over,
+ * when the application is paused, or when calling `flushProperties()`.
+ * Setting the same field multiple times within the window only sends the last value.
+ *
+ * This is a safe no-op on other platforms.
+ *
+ * @param {number} windowMs - The coalescing window in milliseconds, `0` to disable coalescing.
+ * @param {WonderPush~SuccessCallback} [onSuccess] - The success callback.
+ * @param {WonderPush~ErrorCallback} [onFailure] - The failure callback.
+ * @memberof WonderPush
+ */
+function setPropertiesCoalescingWindow(windowMs, onSuccess, onFailure) {
+  if (typeof windowMs !== 'number' || windowMs < 0) {
+    throw new Error('Given parameter is not a positive number');
+  }
+
+  if (typeof cordova !== "undefined" && cordova.platformId === "android") {
+    return _callNative('setPropertiesCoalescingWindow', [windowMs], onSuccess, onFailure);
+  } else {
+    return _callCallbackReturnPromise(undefined, onSuccess);
+  }
+}
+
+/**
+ * Immediately applies the installation property updates merged by `setPropertiesCoalescingWindow()`.
+ *
+ * This is a safe no-op on other platforms than Android.
+ *
+ * @param {WonderPush~SuccessCallback} [onSuccess] - The success callback.
+ * @param {WonderPush~ErrorCallback} [onFailure] - The failure callback.
+ * @memberof WonderPush
+ */
+function flushProperties(onSuccess, onFailure) {
+  if (typeof cordova !== "undefined" && cordova.platformId === "android") {
+    return _callNative('flushProperties', [], onSuccess, onFailure);
+  } else {
+    return _callCallbackReturnPromise(undefined, onSuccess);
+  }
+}
+
 ///
 /// Push notification handling
 ///
@@ -935,6 +1220,82 @@ function setGeolocation(latitude, longitude, onSuccess, onFailure) {
   return _callNative('setGeolocation', [latitude, longitude], onSuccess, onFailure);
 }
 
+/**
+ * Filters the geolocations given to `setGeolocation()`, on Android.
+ *
+ * A geolocation is only reported if it moved at least `minDistanceMeters` from the last reported one,
+ * or if at least `minIntervalSeconds` elapsed since then. A threshold of `0` is ignored.
+ * With both thresholds at `0`, the default, every geolocation is reported.
+ *
+ * This is a safe no-op on other platforms.
+ *
+ * @param {number} minDistanceMeters - The minimum distance in meters, `0` to ignore.
+ * @param {number} minIntervalSeconds - The minimum interval in seconds, `0` to ignore.
+ * @param {WonderPush~SuccessCallback} [onSuccess] - The success callback.
+ * @param {WonderPush~ErrorCallback} [onFailure] - The failure callback.
+ * @memberof WonderPush
+ */
+function setGeolocationFilter(minDistanceMeters, minIntervalSeconds, onSuccess, onFailure) {
+  if (typeof minDistanceMeters !== 'number' || minDistanceMeters < 0
+      || typeof minIntervalSeconds !== 'number' || minIntervalSeconds < 0) {
+    throw new Error('Given parameter is not a positive number');
+  }
+
+  if (typeof cordova !== "undefined" && cordova.platformId === "android") {
+    return _callNative('setGeolocationFilter', [minDistanceMeters, minIntervalSeconds], onSuccess, onFailure);
+  } else {
+    return _callCallbackReturnPromise(undefined, onSuccess);
+  }
+}
+
+///
+/// Diagnostics
+///
+
+/**
+ * Returns a snapshot of the plugin metrics, on Android.
+ *
+ * The snapshot holds, per action, the number of calls and errors and a latency histogram,
+ * the time actions waited in queue, the size of the messages sent to JavaScript,
+ * the round-trip time and timeouts of native calls waiting for JavaScript,
+ * how many notifications waited for the delegate to be set,
+ * how many geolocations were reported or dropped by `setGeolocationFilter()`,
+ * how many duplicate notification opens and registered callbacks were suppressed,
+ * the depth and high-water mark of the high and low priority lanes of events sent to JavaScript,
+ * and the time spent initializing the plugin and dispatching the first call.
+ * Histograms give `count`, `mean`, `p50`, `p90`, `p99` and `max`, latencies being in microseconds.
+ *
+ * Resolves with `null` on other platforms.
+ *
+ * @param {WonderPush~ObjectCallback} [cb] - The callback called with the metrics snapshot.
+ * @param {WonderPush~ErrorCallback} [onFailure] - The failure callback.
+ * @memberof WonderPush
+ */
+function getMetrics(cb, onFailure) {
+  if (typeof cordova !== "undefined" && cordova.platformId === "android") {
+    return _callNative('getMetrics', [], cb, onFailure);
+  } else {
+    return _callCallbackReturnPromise(null, cb);
+  }
+}
+
+/**
+ * Resets the plugin metrics returned by `getMetrics()`.
+ *
+ * This is a safe no-op on other platforms than Android.
+ *
+ * @param {WonderPush~SuccessCallback} [onSuccess] - The success callback.
+ * @param {WonderPush~ErrorCallback} [onFailure] - The failure callback.
+ * @memberof WonderPush
+ */
+function resetMetrics(onSuccess, onFailure) {
+  if (typeof cordova !== "undefined" && cordova.platformId === "android") {
+    return _callNative('resetMetrics', [], onSuccess, onFailure);
+  } else {
+    return _callCallbackReturnPromise(undefined, onSuccess);
+  }
+}
+
 ///
 /// WonderPushUserPreferences
 ///
@@ -1035,8 +1396,11 @@ function UserPreferences_getChannel(channelId, cb, onFailure) {
 
 /**
  * Create, update and remove channel existing groups to match the given channel groups.
+ *
+ * Only the groups that changed since the last call are updated.
+ * The success callback is called with `{put, removed}`, the ids of the groups put and removed.
  * @param {WonderPushChannelGroup[]} channelGroups
- * @param {WonderPush~SuccessCallback} [onSuccess] - The success callback.
+ * @param {WonderPush~ObjectCallback} [onSuccess] - The success callback.
  * @param {WonderPush~ErrorCallback} [onFailure] - The failure callback.
  * @alias WonderPush.UserPreferences.setChannelGroups
  */
@@ -1050,8 +1414,11 @@ function UserPreferences_setChannelGroups(channelGroups, onSuccess, onFailure) {
 
 /**
  * Create, update and remove channels to match the given channels.
+ *
+ * Only the channels that changed since the last call are updated.
+ * The success callback is called with `{put, removed}`, the ids of the channels put and removed.
  * @param {WonderPushChannel[]} channels
- * @param {WonderPush~SuccessCallback} [onSuccess] - The success callback.
+ * @param {WonderPush~ObjectCallback} [onSuccess] - The success callback.
  * @param {WonderPush~ErrorCallback} [onFailure] - The failure callback.
  * @alias WonderPush.UserPreferences.setChannels
  */
@@ -1190,9 +1557,12 @@ var WonderPush = {
   getAccessToken: getAccessToken,
   // Installation data and events
   trackEvent: trackEvent,
+  setEventAggregation: setEventAggregation,
+  flushAggregatedEvents: flushAggregatedEvents,
   addTag: addTag,
   removeTag: removeTag,
   removeAllTags: removeAllTags,
+  setTags: setTags,
   getTags: getTags,
   hasTag: hasTag,
   setProperty: setProperty,
@@ -1205,6 +1575,8 @@ var WonderPush = {
   putProperties: putProperties,
   getInstallationCustomProperties: getInstallationCustomProperties,
   putInstallationCustomProperties: putInstallationCustomProperties,
+  setPropertiesCoalescingWindow: setPropertiesCoalescingWindow,
+  flushProperties: flushProperties,
   // Push notification handling
   subscribeToNotifications: subscribeToNotifications,
   isSubscribedToNotifications: isSubscribedToNotifications,
@@ -1229,8 +1601,12 @@ var WonderPush = {
   getLocale: getLocale,
   setLocale: setLocale,
   setGeolocation: setGeolocation,
+  setGeolocationFilter: setGeolocationFilter,
   enableGeolocation: enableGeolocation,
   disableGeolocation: disableGeolocation,
+  // Diagnostics
+  getMetrics: getMetrics,
+  resetMetrics: resetMetrics,
 };
 
 module.exports = WonderPush;